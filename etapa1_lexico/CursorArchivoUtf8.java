@@ -0,0 +1,215 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// bytes de un archivo mapeado en memoria vistos como CharSequence
+// las posiciones son offsets en bytes y charAt devuelve el byte sin decodificar (0..255):
+// sirve tal cual para todo lo ASCII; lo que no es ASCII lo decodifica CursorArchivoUtf8
+class FuenteBytes implements CharSequence {
+    final ByteBuffer bytes;
+
+    FuenteBytes(ByteBuffer bytes) {
+        this.bytes = bytes;
+    }
+
+    int byteEn(int i) {
+        return bytes.get(i) & 0xFF;
+    }
+
+    @Override
+    public int length() {
+        return bytes.limit();
+    }
+
+    @Override
+    public char charAt(int indice) {
+        return (char) byteEn(indice);
+    }
+
+    // decodifica el rango como UTF-8
+    @Override
+    public CharSequence subSequence(int desde, int hasta) {
+        byte[] copia = new byte[hasta - desde];
+        bytes.get(desde, copia);
+        return new String(copia, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return subSequence(0, length()).toString();
+    }
+}
+
+// cursor sobre un archivo mapeado con FileChannel.map: escanea los bytes UTF-8 directamente,
+// sin cargar el archivo en un String (los tokens ASCII nunca se decodifican)
+class CursorArchivoUtf8 extends CursorTokens {
+    private final FuenteBytes fuente;
+    // ancho en bytes del ultimo caracter decodificado por decodificar()
+    private int ancho;
+
+    private CursorArchivoUtf8(FuenteBytes fuente, int desde, TablaSimbolos tabla) {
+        super(fuente, desde, fuente.length(), tabla);
+        this.fuente = fuente;
+    }
+
+    // el canal se puede cerrar en cuanto se mapea; el mapeo sigue siendo valido
+    static CursorArchivoUtf8 abrir(Path archivo, TablaSimbolos tabla) throws IOException {
+        ByteBuffer bytes;
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            long tamano = canal.size();
+            if (tamano > Integer.MAX_VALUE) {
+                throw new IOException("Archivo demasiado grande para mapearlo de una vez: " + archivo);
+            }
+            bytes = canal.map(FileChannel.MapMode.READ_ONLY, 0, tamano);
+        }
+        FuenteBytes fuente = new FuenteBytes(bytes);
+
+        // se salta la marca BOM de UTF-8 si la hay
+        int desde = 0;
+        if (fuente.length() >= 3 && fuente.byteEn(0) == 0xEF && fuente.byteEn(1) == 0xBB
+                && fuente.byteEn(2) == 0xBF) {
+            desde = 3;
+        }
+        return new CursorArchivoUtf8(fuente, desde, tabla);
+    }
+
+    // caracter (BMP) que empieza en el byte i; deja su largo en 'ancho'
+    // secuencias invalidas o fuera del BMP se tratan como un caracter no reconocido
+    private char decodificar(int i) {
+        int b0 = fuente.byteEn(i);
+        if (b0 < 0x80) {
+            ancho = 1;
+            return (char) b0;
+        }
+        int largo;
+        int valor;
+        if ((b0 & 0xE0) == 0xC0) {
+            largo = 2;
+            valor = b0 & 0x1F;
+        } else if ((b0 & 0xF0) == 0xE0) {
+            largo = 3;
+            valor = b0 & 0x0F;
+        } else if ((b0 & 0xF8) == 0xF0) {
+            largo = 4;
+            valor = b0 & 0x07;
+        } else {
+            ancho = 1;
+            return '\uFFFD';
+        }
+        if (i + largo > limite) {
+            ancho = 1;
+            return '\uFFFD';
+        }
+        for (int k = 1; k < largo; k++) {
+            int b = fuente.byteEn(i + k);
+            if ((b & 0xC0) != 0x80) {
+                ancho = 1;
+                return '\uFFFD';
+            }
+            valor = (valor << 6) | (b & 0x3F);
+        }
+        ancho = largo;
+        return valor > 0xFFFF ? '\uFFFD' : (char) valor;
+    }
+
+    private boolean esParteDeId(int i) {
+        char c = decodificar(i);
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+
+    private boolean esAscii(int desde, int hasta) {
+        for (int i = desde; i < hasta; i++) {
+            if (fuente.byteEn(i) >= 0x80)
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    int reconocer(int i) {
+        char c = decodificar(i);
+
+        // Identificadores: letras Unicode de varios bytes incluidas
+        if (Character.isLetter(c) || c == '_' || c == '$') {
+            while (i < limite && esParteDeId(i)) {
+                i += ancho;
+            }
+            tipo = TipoToken.ID;
+            return i;
+        }
+
+        // Números: mismas reglas que CursorTokens, sobre caracteres decodificados
+        if (Character.isDigit(c)) {
+            boolean esDecimal = false;
+            while (i < limite) {
+                char d = decodificar(i);
+                if (d == '.') {
+                    if (esDecimal)
+                        break;
+                    esDecimal = true;
+                } else if (!Character.isDigit(d)) {
+                    break;
+                }
+                i += ancho;
+            }
+            tipo = esDecimal ? TipoToken.NUM_FLOAT : TipoToken.NUM;
+            return i;
+        }
+
+        // cadenas y operadores empiezan con un byte ASCII: el '"' (0x22) nunca
+        // aparece dentro de una secuencia UTF-8, asi que la version por bytes sirve
+        if (c < 0x80) {
+            return super.reconocer(i);
+        }
+        return -1;
+    }
+
+    @Override
+    int espacio(int i) {
+        int b = fuente.byteEn(i);
+        if (b < 0x80) {
+            return Character.isWhitespace((char) b) ? 1 : 0;
+        }
+        char c = decodificar(i);
+        return Character.isWhitespace(c) ? ancho : 0;
+    }
+
+    @Override
+    int anchoCaracter(int i) {
+        decodificar(i);
+        return ancho;
+    }
+
+    @Override
+    void errorLexico(int i) {
+        System.err.println("Error Léxico: Carácter no reconocido '" + decodificar(i) + "' en posición " + i);
+    }
+
+    // con puros bytes ASCII la vista por bytes coincide con el texto y no hace falta decodificar
+    @Override
+    SimboloCompleto buscarEnTabla(int desde, int hasta) {
+        if (esAscii(desde, hasta)) {
+            return tabla.buscar(fuente, desde, hasta);
+        }
+        return tabla.buscar(texto(desde, hasta));
+    }
+
+    @Override
+    String texto(int desde, int hasta) {
+        if (esAscii(desde, hasta)) {
+            return tabla.interno(fuente, desde, hasta);
+        }
+        return tabla.interno(fuente.subSequence(desde, hasta).toString());
+    }
+
+    @Override
+    public CharSequence lexema() {
+        if (esAscii(inicio(), fin())) {
+            return super.lexema();
+        }
+        return texto(inicio(), fin());
+    }
+}
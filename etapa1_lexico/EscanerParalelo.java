@@ -0,0 +1,115 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// resultado de escanear un trozo: sus tokens y los simbolos nuevos en orden de aparicion
+class TrozoEscaneado {
+    final List<TokenCompleto> tokens = new ArrayList<>();
+    final TablaSimbolos tabla = new TablaSimbolos();
+}
+
+// escaneo en paralelo: parte la entrada en trozos por fronteras seguras (espacio o ';'
+// fuera de una CADENA), escanea cada trozo en un ForkJoinPool con su propia tabla
+// y une los resultados en orden; los simbolos se insertan en la tabla global trozo por
+// trozo, asi que los ids quedan igual que con el escaneo secuencial
+// cada trozo interna en su propio pool; al unir, los lexemas de ID, NUM, NUM_FLOAT y CADENA
+// pasan a ser el nombre del simbolo global (los operadores y palabras reservadas ya traen
+// su texto fijo y no tocan la tabla)
+class EscanerParalelo {
+    // por debajo de esto no vale la pena repartir el trabajo
+    static final int TAMANO_MINIMO_TROZO = 64 * 1024;
+
+    private final AnalizadorLexicoCompleto lexer;
+    private final ForkJoinPool pool;
+
+    EscanerParalelo(AnalizadorLexicoCompleto lexer, ForkJoinPool pool) {
+        this.lexer = lexer;
+        this.pool = pool;
+    }
+
+    List<TokenCompleto> escanear(String entrada, TablaSimbolos tablaGlobal) {
+        int trozos = Math.min(pool.getParallelism() * 4, entrada.length() / TAMANO_MINIMO_TROZO);
+        int[] cortes = calcularCortes(entrada, Math.max(trozos, 1));
+
+        List<ForkJoinTask<TrozoEscaneado>> tareas = new ArrayList<>();
+        for (int k = 0; k + 1 < cortes.length; k++) {
+            final int desde = cortes[k];
+            final int hasta = cortes[k + 1];
+            tareas.add(pool.submit(() -> escanearTrozo(entrada, desde, hasta)));
+        }
+
+        List<TokenCompleto> tokens = new ArrayList<>();
+        for (ForkJoinTask<TrozoEscaneado> tarea : tareas) {
+            TrozoEscaneado trozo = tarea.join();
+            for (SimboloCompleto s : trozo.tabla) {
+                tablaGlobal.insertar(s.nombre, s.codigo, s.valor);
+            }
+            for (TokenCompleto t : trozo.tokens) {
+                if (t.codigo == TipoToken.ID || t.codigo == TipoToken.NUM || t.codigo == TipoToken.NUM_FLOAT
+                        || t.codigo == TipoToken.CADENA) {
+                    t.lexema = tablaGlobal.buscar(t.lexema).nombre;
+                }
+            }
+            tokens.addAll(trozo.tokens);
+        }
+        return tokens;
+    }
+
+    private TrozoEscaneado escanearTrozo(String entrada, int desde, int hasta) {
+        TrozoEscaneado trozo = new TrozoEscaneado();
+        CursorTokens cursor = lexer.nuevoCursor(entrada, desde, hasta, trozo.tabla);
+        while (cursor.siguiente()) {
+            trozo.tokens.add(cursor.token());
+        }
+        return trozo;
+    }
+
+    // posiciones de corte: 0, ..., entrada.length()
+    // cada corte queda justo despues de un espacio o ';' que no esta dentro de una cadena;
+    // fuera de una cadena toda '"' abre una, asi que basta con llevar la paridad de comillas
+    static int[] calcularCortes(String entrada, int trozos) {
+        int longitud = entrada.length();
+        List<Integer> cortes = new ArrayList<>();
+        cortes.add(0);
+
+        int posicion = 0;
+        boolean enCadena = false;
+        for (int k = 1; k < trozos; k++) {
+            int objetivo = (int) ((long) longitud * k / trozos);
+            if (objetivo <= posicion)
+                continue;
+
+            // comillas antes del objetivo: indexOf salta directo de una a otra
+            int comilla = entrada.indexOf('"', posicion);
+            while (comilla >= 0 && comilla < objetivo) {
+                enCadena = !enCadena;
+                posicion = comilla + 1;
+                comilla = entrada.indexOf('"', posicion);
+            }
+            posicion = Math.max(posicion, objetivo);
+
+            // primer separador seguro a partir del objetivo
+            int corte = -1;
+            while (posicion < longitud) {
+                char c = entrada.charAt(posicion++);
+                if (c == '"') {
+                    enCadena = !enCadena;
+                } else if (!enCadena && (c == ' ' || c == '\n' || c == '\t' || c == '\r' || c == ';')) {
+                    corte = posicion;
+                    break;
+                }
+            }
+            if (corte < 0 || corte >= longitud)
+                break;
+            cortes.add(corte);
+        }
+        cortes.add(longitud);
+
+        int[] resultado = new int[cortes.size()];
+        for (int k = 0; k < resultado.length; k++) {
+            resultado[k] = cortes.get(k);
+        }
+        return resultado;
+    }
+}
@@ -0,0 +1,82 @@
+import java.util.Map;
+
+// reconocedor de palabras reservadas generado a partir de PALABRAS_RESERVADAS
+// decide palabra reservada vs ID directo sobre los caracteres de la entrada:
+// se indexa por (longitud, primera letra) y solo se comparan los pocos candidatos
+// de esa casilla, sin crear Strings ni calcular hashes del lexema
+final class ReconocedorPalabras {
+    private static final int LARGO_MAXIMO;
+    // CANDIDATOS[largo][primera - 'a'] = palabras con ese largo y esa inicial (o null)
+    private static final char[][][][] CANDIDATOS;
+    private static final int[][][] CODIGOS;
+    // texto canonico de cada palabra, indexado por tipo de token ("not" para OPERA_NOT)
+    private static final String[] TEXTO = new String[TipoToken.total()];
+
+    static {
+        Map<String, String> palabras = AnalizadorLexicoCompleto.PALABRAS_RESERVADAS;
+        int maximo = 0;
+        for (String palabra : palabras.keySet()) {
+            char inicial = palabra.charAt(0);
+            if (inicial < 'a' || inicial > 'z')
+                throw new IllegalStateException("Palabra reservada fuera de a-z: " + palabra);
+            maximo = Math.max(maximo, palabra.length());
+        }
+        LARGO_MAXIMO = maximo;
+        CANDIDATOS = new char[maximo + 1][26][][];
+        CODIGOS = new int[maximo + 1][26][];
+
+        for (Map.Entry<String, String> e : palabras.entrySet()) {
+            String palabra = e.getKey();
+            int codigo = TipoToken.codigo(e.getValue());
+            int largo = palabra.length();
+            int letra = palabra.charAt(0) - 'a';
+
+            char[][] previas = CANDIDATOS[largo][letra];
+            int n = previas == null ? 0 : previas.length;
+            char[][] lista = new char[n + 1][];
+            int[] codigos = new int[n + 1];
+            for (int k = 0; k < n; k++) {
+                lista[k] = previas[k];
+                codigos[k] = CODIGOS[largo][letra][k];
+            }
+            lista[n] = palabra.toCharArray();
+            codigos[n] = codigo;
+            CANDIDATOS[largo][letra] = lista;
+            CODIGOS[largo][letra] = codigos;
+            TEXTO[codigo] = palabra;
+        }
+    }
+
+    private ReconocedorPalabras() {
+    }
+
+    // tipo de la palabra reservada en [inicio, fin) o TipoToken.ID si no lo es
+    static int reconocer(CharSequence fuente, int inicio, int fin) {
+        int largo = fin - inicio;
+        if (largo > LARGO_MAXIMO)
+            return TipoToken.ID;
+        int letra = fuente.charAt(inicio) - 'a';
+        if (letra < 0 || letra >= 26)
+            return TipoToken.ID;
+
+        char[][] lista = CANDIDATOS[largo][letra];
+        if (lista == null)
+            return TipoToken.ID;
+
+        for (int k = 0; k < lista.length; k++) {
+            char[] palabra = lista[k];
+            int j = 1;
+            while (j < largo && palabra[j] == fuente.charAt(inicio + j)) {
+                j++;
+            }
+            if (j == largo)
+                return CODIGOS[largo][letra][k];
+        }
+        return TipoToken.ID;
+    }
+
+    // texto de la palabra reservada con ese tipo (null si ninguna palabra tiene ese tipo)
+    static String texto(int codigo) {
+        return TEXTO[codigo];
+    }
+}
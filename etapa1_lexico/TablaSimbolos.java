@@ -0,0 +1,218 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+
+// tabla de simbolos con indice hash
+// la lista guarda el orden de insercion (id = posicion + 1)
+// el indice es de direccionamiento abierto: nombre -> posicion en la lista
+// un simbolo eliminado deja su posicion en null, asi que los ids de los demas no cambian
+// no es segura entre hilos: para una tabla compartida ver TablaSimbolosConcurrente
+class TablaSimbolos implements Iterable<SimboloCompleto> {
+    private static final int CAPACIDAD_INICIAL = 64;
+
+    private final List<SimboloCompleto> simbolos;
+    // los nombres se guardan internados; el cursor toma de aqui el texto de los simbolos
+    // cada simbolo retiene su nombre en el pool y lo libera al salir de la tabla
+    final PoolLexemas lexemas;
+    // 0 = ranura vacia, si no guarda posicion + 1
+    private int[] indice;
+    private int mascara;
+    private int eliminados;
+
+    public TablaSimbolos() {
+        this(new PoolLexemas());
+    }
+
+    public TablaSimbolos(PoolLexemas lexemas) {
+        this.lexemas = lexemas;
+        simbolos = new ArrayList<>();
+        indice = new int[CAPACIDAD_INICIAL];
+        mascara = CAPACIDAD_INICIAL - 1;
+    }
+
+    // copia con los mismos simbolos e ids (sin volver a dispersar) y un pool nuevo
+    // los objetos SimboloCompleto se comparten con la base: solo sirve para bases que ya
+    // no cambian, como las palabras reservadas
+    public TablaSimbolos(TablaSimbolos base) {
+        lexemas = new PoolLexemas();
+        simbolos = new ArrayList<>(base.simbolos);
+        indice = base.indice.clone();
+        mascara = base.mascara;
+        eliminados = base.eliminados;
+        for (SimboloCompleto s : simbolos) {
+            if (s != null)
+                lexemas.retener(s.nombre);
+        }
+    }
+
+    public int tamano() {
+        return simbolos.size() - eliminados;
+    }
+
+    public int siguienteId() {
+        return simbolos.size() + 1;
+    }
+
+    // busqueda por nombre en tiempo constante
+    public SimboloCompleto buscar(String nombre) {
+        int ranura = mezclar(nombre.hashCode()) & mascara;
+        while (indice[ranura] != 0) {
+            SimboloCompleto s = simbolos.get(indice[ranura] - 1);
+            if (s.nombre.equals(nombre))
+                return s;
+            ranura = (ranura + 1) & mascara;
+        }
+        return null;
+    }
+
+    // busqueda por un rango de caracteres de la entrada, sin crear un String
+    public SimboloCompleto buscar(CharSequence fuente, int inicio, int fin) {
+        int largo = fin - inicio;
+        int ranura = mezclar(hashRango(fuente, inicio, fin)) & mascara;
+        while (indice[ranura] != 0) {
+            SimboloCompleto s = simbolos.get(indice[ranura] - 1);
+            if (s.nombre.length() == largo && igualRango(s.nombre, fuente, inicio))
+                return s;
+            ranura = (ranura + 1) & mascara;
+        }
+        return null;
+    }
+
+    // texto internado del rango (el cursor lo usa para los nombres de simbolos nuevos)
+    public String interno(CharSequence fuente, int inicio, int fin) {
+        return lexemas.interno(fuente, inicio, fin);
+    }
+
+    public String interno(String texto) {
+        return lexemas.interno(texto);
+    }
+
+    // busqueda por id en tiempo constante
+    public SimboloCompleto obtener(int id) {
+        if (id < 1 || id > simbolos.size())
+            return null;
+        return simbolos.get(id - 1);
+    }
+
+    public boolean contiene(String nombre) {
+        return buscar(nombre) != null;
+    }
+
+    // inserta si no existe y devuelve el simbolo (nuevo o el que ya estaba)
+    public SimboloCompleto insertar(String nombre, int codigo, String valor) {
+        int ranura = mezclar(nombre.hashCode()) & mascara;
+        while (indice[ranura] != 0) {
+            SimboloCompleto s = simbolos.get(indice[ranura] - 1);
+            if (s.nombre.equals(nombre))
+                return s;
+            ranura = (ranura + 1) & mascara;
+        }
+
+        SimboloCompleto nuevo = new SimboloCompleto(simbolos.size() + 1, lexemas.retener(nombre), codigo, valor);
+        simbolos.add(nuevo);
+        indice[ranura] = simbolos.size();
+
+        // factor de carga maximo 0.5
+        if (simbolos.size() * 2 > indice.length) {
+            redimensionar();
+        }
+        return nuevo;
+    }
+
+    // quita el simbolo de la tabla; su id no se vuelve a usar (hasta truncar)
+    public boolean eliminar(SimboloCompleto simbolo) {
+        if (obtener(simbolo.id) != simbolo)
+            return false;
+        quitarDelIndice(simbolo.id - 1);
+        simbolos.set(simbolo.id - 1, null);
+        eliminados++;
+        lexemas.liberar(simbolo.nombre);
+        return true;
+    }
+
+    // deja solo los primeros 'tamano' ids (por ejemplo, las palabras reservadas)
+    public void truncar(int tamano) {
+        for (int i = simbolos.size() - 1; i >= tamano; i--) {
+            if (simbolos.get(i) != null) {
+                quitarDelIndice(i);
+                lexemas.liberar(simbolos.get(i).nombre);
+            } else {
+                eliminados--;
+            }
+            simbolos.remove(i);
+        }
+    }
+
+    // borrado con corrimiento hacia atras: los simbolos que siguen en el mismo grupo y
+    // cuya ranura ideal no queda despues del hueco se adelantan, para que ninguna
+    // busqueda se corte en una ranura vacia
+    private void quitarDelIndice(int posicion) {
+        int hueco = mezclar(simbolos.get(posicion).nombre.hashCode()) & mascara;
+        while (indice[hueco] != posicion + 1) {
+            hueco = (hueco + 1) & mascara;
+        }
+        int j = hueco;
+        while (true) {
+            j = (j + 1) & mascara;
+            if (indice[j] == 0)
+                break;
+            int ideal = mezclar(simbolos.get(indice[j] - 1).nombre.hashCode()) & mascara;
+            if (((j - ideal) & mascara) >= ((j - hueco) & mascara)) {
+                indice[hueco] = indice[j];
+                hueco = j;
+            }
+        }
+        indice[hueco] = 0;
+    }
+
+    private void redimensionar() {
+        int[] nuevo = new int[indice.length * 2];
+        int nuevaMascara = nuevo.length - 1;
+        for (int i = 0; i < simbolos.size(); i++) {
+            if (simbolos.get(i) == null)
+                continue;
+            int ranura = mezclar(simbolos.get(i).nombre.hashCode()) & nuevaMascara;
+            while (nuevo[ranura] != 0) {
+                ranura = (ranura + 1) & nuevaMascara;
+            }
+            nuevo[ranura] = i + 1;
+        }
+        indice = nuevo;
+        mascara = nuevaMascara;
+    }
+
+    // mismo valor que String.hashCode() para el texto del rango
+    static int hashRango(CharSequence fuente, int inicio, int fin) {
+        int h = 0;
+        for (int i = inicio; i < fin; i++) {
+            h = 31 * h + fuente.charAt(i);
+        }
+        return h;
+    }
+
+    static boolean igualRango(String nombre, CharSequence fuente, int inicio) {
+        for (int i = 0; i < nombre.length(); i++) {
+            if (nombre.charAt(i) != fuente.charAt(inicio + i))
+                return false;
+        }
+        return true;
+    }
+
+    // dispersa los bits altos para que la mascara no pierda informacion
+    static int mezclar(int h) {
+        h ^= (h >>> 16);
+        h *= 0x85ebca6b;
+        h ^= (h >>> 13);
+        return h;
+    }
+
+    @Override
+    public Iterator<SimboloCompleto> iterator() {
+        if (eliminados > 0) {
+            return simbolos.stream().filter(Objects::nonNull).iterator();
+        }
+        return Collections.unmodifiableList(simbolos).iterator();
+    }
+}
@@ -1,20 +1,26 @@
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 class SimboloCompleto {
     int id;
     String nombre;
+    int codigo;
     String tipo;
     String valor;
 
-    public SimboloCompleto(int id, String nombre, String tipo, String valor) {
+    public SimboloCompleto(int id, String nombre, int codigo, String valor) {
         this.id = id;
         this.nombre = nombre;
-        this.tipo = tipo;
+        this.codigo = codigo;
+        this.tipo = TipoToken.nombre(codigo);
         this.valor = valor;
     }
 
@@ -25,11 +31,13 @@ class SimboloCompleto {
 }
 
 class TokenCompleto {
+    int codigo;
     String tipo;
     String lexema;
 
-    public TokenCompleto(String tipo, String lexema) {
-        this.tipo = tipo;
+    public TokenCompleto(int codigo, String lexema) {
+        this.codigo = codigo;
+        this.tipo = TipoToken.nombre(codigo);
         this.lexema = lexema;
     }
 
@@ -39,240 +47,222 @@ class TokenCompleto {
     }
 }
 
+// Motor de reconocimiento de tokens: escrito a mano o dirigido por tabla (DFA)
+enum MotorLexico {
+    MANUAL,
+    TABLA_DFA
+}
+
+// La configuración (motor, palabras reservadas, operadores) no cambia después de construir.
+// El único estado mutable es la tabla de símbolos: los métodos sin tabla usan la del
+// analizador; cursor(entrada, tabla) y escanear(entrada, tabla) solo usan la tabla que
+// reciben, así que un mismo analizador sirve a varios hilos a la vez si cada compilación
+// trae su tabla (nuevaTabla) o si la tabla del analizador es una TablaSimbolosConcurrente
 public class AnalizadorLexicoCompleto {
 
-    private List<SimboloCompleto> tablaSimbolos;
-    private int contadorId;
+    private final TablaSimbolos tablaSimbolos;
+    // ids que ya tenía la tabla al construir el analizador (reiniciar vuelve a ese punto)
+    private final int idsIniciales;
+    private final MotorLexico motor;
 
-    private static final Map<String, String> PALABRAS_RESERVADAS = new LinkedHashMap<>();
+    // Configuración fija: no se puede modificar después de cargar la clase
+    static final Map<String, String> PALABRAS_RESERVADAS;
     static {
+        Map<String, String> palabras = new LinkedHashMap<>();
         // Control de flujo
-        PALABRAS_RESERVADAS.put("if", "KEY_IF");
-        PALABRAS_RESERVADAS.put("then", "KEY_THEN");
-        PALABRAS_RESERVADAS.put("else", "KEY_ELSE");
-        PALABRAS_RESERVADAS.put("case", "KEY_CASE");
-        PALABRAS_RESERVADAS.put("do", "KEY_DO");
-        PALABRAS_RESERVADAS.put("while", "KEY_WHILE");
-        PALABRAS_RESERVADAS.put("switch", "KEY_SWITCH");
-        PALABRAS_RESERVADAS.put("break", "KEY_BREAK");
-        PALABRAS_RESERVADAS.put("for", "KEY_FOR");
-        PALABRAS_RESERVADAS.put("continue", "KEY_CONTINUE");
-        PALABRAS_RESERVADAS.put("return", "KEY_RETURN");
+        palabras.put("if", "KEY_IF");
+        palabras.put("then", "KEY_THEN");
+        palabras.put("else", "KEY_ELSE");
+        palabras.put("case", "KEY_CASE");
+        palabras.put("do", "KEY_DO");
+        palabras.put("while", "KEY_WHILE");
+        palabras.put("switch", "KEY_SWITCH");
+        palabras.put("break", "KEY_BREAK");
+        palabras.put("for", "KEY_FOR");
+        palabras.put("continue", "KEY_CONTINUE");
+        palabras.put("return", "KEY_RETURN");
 
         // Estructuras y clases
-        PALABRAS_RESERVADAS.put("class", "KEY_CLASS");
-        PALABRAS_RESERVADAS.put("new", "KEY_NEW");
-        PALABRAS_RESERVADAS.put("interface", "KEY_INTERFACE");
-        PALABRAS_RESERVADAS.put("package", "KEY_PACKAGE");
+        palabras.put("class", "KEY_CLASS");
+        palabras.put("new", "KEY_NEW");
+        palabras.put("interface", "KEY_INTERFACE");
+        palabras.put("package", "KEY_PACKAGE");
 
         // Modificadores de acceso
-        PALABRAS_RESERVADAS.put("public", "KEY_PUBLIC");
-        PALABRAS_RESERVADAS.put("private", "KEY_PRIVATE");
-        PALABRAS_RESERVADAS.put("static", "KEY_STATIC");
-        PALABRAS_RESERVADAS.put("final", "KEY_FINAL");
-        PALABRAS_RESERVADAS.put("void", "KEY_VOID");
-        PALABRAS_RESERVADAS.put("main", "KEY_MAIN");
+        palabras.put("public", "KEY_PUBLIC");
+        palabras.put("private", "KEY_PRIVATE");
+        palabras.put("static", "KEY_STATIC");
+        palabras.put("final", "KEY_FINAL");
+        palabras.put("void", "KEY_VOID");
+        palabras.put("main", "KEY_MAIN");
 
         // Tipos de datos
-        PALABRAS_RESERVADAS.put("int", "KEY_INT");
-        PALABRAS_RESERVADAS.put("long", "KEY_LONG");
-        PALABRAS_RESERVADAS.put("float", "KEY_FLOAT");
-        PALABRAS_RESERVADAS.put("double", "KEY_DOUBLE");
-        PALABRAS_RESERVADAS.put("char", "KEY_CHAR");
-        PALABRAS_RESERVADAS.put("boolean", "KEY_BOOLEAN");
-        PALABRAS_RESERVADAS.put("string", "KEY_STRING");
-        PALABRAS_RESERVADAS.put("local_date", "KEY_LOCAL_DATE");
-        PALABRAS_RESERVADAS.put("local_time", "KEY_LOCAL_TIME");
-        PALABRAS_RESERVADAS.put("bool", "KEY_BOOL");
-        PALABRAS_RESERVADAS.put("date", "KEY_DATE");
-        PALABRAS_RESERVADAS.put("true", "KEY_TRUE");
-        PALABRAS_RESERVADAS.put("false", "KEY_FALSE");
+        palabras.put("int", "KEY_INT");
+        palabras.put("long", "KEY_LONG");
+        palabras.put("float", "KEY_FLOAT");
+        palabras.put("double", "KEY_DOUBLE");
+        palabras.put("char", "KEY_CHAR");
+        palabras.put("boolean", "KEY_BOOLEAN");
+        palabras.put("string", "KEY_STRING");
+        palabras.put("local_date", "KEY_LOCAL_DATE");
+        palabras.put("local_time", "KEY_LOCAL_TIME");
+        palabras.put("bool", "KEY_BOOL");
+        palabras.put("date", "KEY_DATE");
+        palabras.put("true", "KEY_TRUE");
+        palabras.put("false", "KEY_FALSE");
 
         // Operadores lógicos
-        PALABRAS_RESERVADAS.put("and", "OPERA_AND");
-        PALABRAS_RESERVADAS.put("or", "OPERA_OR");
-        PALABRAS_RESERVADAS.put("not", "OPERA_NOT");
+        palabras.put("and", "OPERA_AND");
+        palabras.put("or", "OPERA_OR");
+        palabras.put("not", "OPERA_NOT");
+        PALABRAS_RESERVADAS = Collections.unmodifiableMap(palabras);
+    }
+
+    static final Map<Character, String> OPERADORES_SIMPLES;
+    static {
+        Map<Character, String> operadores = new HashMap<>();
+        operadores.put('+', "OPERA_SUMA");
+        operadores.put('-', "OPERA_RESTA");
+        operadores.put('*', "OPERA_MULT");
+        operadores.put('/', "OPERA_DIVID");
+        operadores.put(';', "FIN_SENTENCIA");
+        operadores.put('{', "INI_BLOQUE");
+        operadores.put('}', "FIN_BLOQUE");
+        operadores.put('(', "ABRE_PARENTESIS");
+        operadores.put(')', "CIERRA_PARENTESIS");
+        operadores.put(',', "COMA");
+        OPERADORES_SIMPLES = Collections.unmodifiableMap(operadores);
     }
 
-    private static final Map<Character, String> OPERADORES_SIMPLES = new HashMap<>();
+    // Categoría de cada tipo de token, calculada una sola vez por código
+    private static final String[] CATEGORIAS = new String[TipoToken.total()];
     static {
-        OPERADORES_SIMPLES.put('+', "OPERA_SUMA");
-        OPERADORES_SIMPLES.put('-', "OPERA_RESTA");
-        OPERADORES_SIMPLES.put('*', "OPERA_MULT");
-        OPERADORES_SIMPLES.put('/', "OPERA_DIVID");
-        OPERADORES_SIMPLES.put(';', "FIN_SENTENCIA");
-        OPERADORES_SIMPLES.put('{', "INI_BLOQUE");
-        OPERADORES_SIMPLES.put('}', "FIN_BLOQUE");
-        OPERADORES_SIMPLES.put('(', "ABRE_PARENTESIS");
-        OPERADORES_SIMPLES.put(')', "CIERRA_PARENTESIS");
-        OPERADORES_SIMPLES.put(',', "COMA");
+        for (int codigo = 0; codigo < CATEGORIAS.length; codigo++) {
+            CATEGORIAS[codigo] = obtenerCategoria(TipoToken.nombre(codigo));
+        }
     }
 
     public AnalizadorLexicoCompleto() {
-        tablaSimbolos = new ArrayList<>();
-        contadorId = 1;
-        cargarPalabrasReservadas();
+        this(MotorLexico.MANUAL);
     }
 
-    private void cargarPalabrasReservadas() {
-        for (Map.Entry<String, String> entry : PALABRAS_RESERVADAS.entrySet()) {
-            tablaSimbolos.add(new SimboloCompleto(contadorId++, entry.getKey(), entry.getValue(), "-"));
-        }
+    public AnalizadorLexicoCompleto(MotorLexico motor) {
+        this.motor = motor;
+        tablaSimbolos = nuevaTabla();
+        idsIniciales = tablaSimbolos.siguienteId() - 1;
     }
 
-    private boolean existeSimbolo(String nombre) {
-        for (SimboloCompleto s : tablaSimbolos) {
-            if (s.nombre.equals(nombre))
-                return true;
-        }
-        return false;
+    // Con una tabla propia, por ejemplo una TablaSimbolosConcurrente compartida entre
+    // analizadores; se le agregan las palabras reservadas que falten
+    public AnalizadorLexicoCompleto(MotorLexico motor, TablaSimbolos tabla) {
+        this.motor = motor;
+        tablaSimbolos = tabla;
+        cargarPalabrasReservadas(tabla);
+        idsIniciales = tabla.siguienteId() - 1;
     }
 
-    private void insertarSimbolo(String nombre, String tipo, String valor) {
-        if (!existeSimbolo(nombre)) {
-            tablaSimbolos.add(new SimboloCompleto(contadorId++, nombre, tipo, valor));
+    private static void cargarPalabrasReservadas(TablaSimbolos tabla) {
+        for (Map.Entry<String, String> entry : PALABRAS_RESERVADAS.entrySet()) {
+            tabla.insertar(entry.getKey(), TipoToken.codigo(entry.getValue()), "-");
         }
     }
 
-    public List<TokenCompleto> escanear(String entrada) {
-        List<TokenCompleto> tokens = new ArrayList<>();
-        int i = 0;
-        int longitud = entrada.length();
+    // Tabla con solo las palabras reservadas; se copia para cada tabla nueva y no cambia
+    private static final TablaSimbolos TABLA_PALABRAS = new TablaSimbolos();
+    static {
+        cargarPalabrasReservadas(TABLA_PALABRAS);
+    }
 
-        while (i < longitud) {
-            char c = entrada.charAt(i);
+    // Tabla nueva para una compilación (copia de las palabras reservadas, sin volver a insertarlas)
+    public static TablaSimbolos nuevaTabla() {
+        return new TablaSimbolos(TABLA_PALABRAS);
+    }
 
-            if (Character.isWhitespace(c)) {
-                i++;
-                continue;
-            }
+    // Vacía la tabla de símbolos para reutilizar el lexer: quedan las palabras reservadas y,
+    // si la tabla se recibió al construir, los símbolos que ya tenía en ese momento
+    // Una TablaSimbolosConcurrente la comparten otros analizadores, así que no se vacía
+    public void reiniciar() {
+        if (tablaSimbolos instanceof TablaSimbolosConcurrente)
+            throw new IllegalStateException("la tabla concurrente es compartida: no se reinicia desde un analizador");
+        tablaSimbolos.truncar(idsIniciales);
+    }
 
-            // Identificadores y palabras reservadas
-            if (Character.isLetter(c) || c == '_' || c == '$') {
-                StringBuilder lexema = new StringBuilder();
-                while (i < longitud && (Character.isLetterOrDigit(entrada.charAt(i))
-                        || entrada.charAt(i) == '_' || entrada.charAt(i) == '$')) {
-                    lexema.append(entrada.charAt(i));
-                    i++;
-                }
-                String palabra = lexema.toString();
+    // Tabla de símbolos que comparten los cursores de este analizador
+    TablaSimbolos tablaSimbolos() {
+        return tablaSimbolos;
+    }
 
-                if (PALABRAS_RESERVADAS.containsKey(palabra)) {
-                    tokens.add(new TokenCompleto(PALABRAS_RESERVADAS.get(palabra), palabra));
-                } else {
-                    tokens.add(new TokenCompleto("ID", palabra));
-                    insertarSimbolo(palabra, "ID", "-");
-                }
-                continue;
-            }
+    // Consulta de la tabla de símbolos por nombre (null si no existe)
+    public SimboloCompleto buscarSimbolo(String nombre) {
+        return tablaSimbolos.buscar(nombre);
+    }
 
-            // Números enteros y decimales
-            if (Character.isDigit(c)) {
-                StringBuilder lexema = new StringBuilder();
-                boolean esDecimal = false;
+    // Consulta de la tabla de símbolos por id (null si no existe)
+    public SimboloCompleto buscarSimbolo(int id) {
+        return tablaSimbolos.obtener(id);
+    }
 
-                while (i < longitud && (Character.isDigit(entrada.charAt(i)) || entrada.charAt(i) == '.')) {
-                    if (entrada.charAt(i) == '.') {
-                        if (esDecimal)
-                            break;
-                        esDecimal = true;
-                    }
-                    lexema.append(entrada.charAt(i));
-                    i++;
-                }
+    // Cursor perezoso sobre la entrada: escanea un token por cada llamada a siguiente()
+    public CursorTokens cursor(CharSequence entrada) {
+        return nuevoCursor(entrada, 0, entrada.length(), tablaSimbolos);
+    }
 
-                String numero = lexema.toString();
-                if (esDecimal) {
-                    tokens.add(new TokenCompleto("NUM_FLOAT", numero));
-                    insertarSimbolo(numero, "NUM_FLOAT", numero);
-                } else {
-                    tokens.add(new TokenCompleto("NUM", numero));
-                    insertarSimbolo(numero, "NUM", numero);
-                }
-                continue;
-            }
+    // Cursor sobre el tramo [desde, hasta) de la entrada
+    public CursorTokens cursor(CharSequence entrada, int desde, int hasta) {
+        return nuevoCursor(entrada, desde, hasta, tablaSimbolos);
+    }
 
-            // Cadenas de texto
-            if (c == '"') {
-                StringBuilder lexema = new StringBuilder();
-                lexema.append(c);
-                i++;
+    // Cursor que registra los símbolos en la tabla dada (reentrante)
+    public CursorTokens cursor(CharSequence entrada, TablaSimbolos tabla) {
+        return nuevoCursor(entrada, 0, entrada.length(), tabla);
+    }
 
-                while (i < longitud && entrada.charAt(i) != '"') {
-                    lexema.append(entrada.charAt(i));
-                    i++;
-                }
+    CursorTokens nuevoCursor(CharSequence entrada, int desde, int hasta, TablaSimbolos tabla) {
+        if (motor == MotorLexico.TABLA_DFA) {
+            return new CursorTokensDFA(entrada, desde, hasta, tabla);
+        }
+        return new CursorTokens(entrada, desde, hasta, tabla);
+    }
 
-                if (i < longitud) {
-                    lexema.append(entrada.charAt(i));
-                    i++;
-                }
+    // Cursor sobre un archivo UTF-8 mapeado en memoria (no se carga en un String)
+    public CursorTokens cursorArchivo(Path archivo) throws IOException {
+        return CursorArchivoUtf8.abrir(archivo, tablaSimbolos);
+    }
 
-                String cadena = lexema.toString();
-                tokens.add(new TokenCompleto("CADENA", cadena));
-                insertarSimbolo(cadena, "CADENA", cadena);
-                continue;
-            }
+    public List<TokenCompleto> escanear(String entrada) {
+        return recolectar(cursor(entrada));
+    }
 
-            // Operadores compuestos (2 caracteres): <=, >=, !=, ==
-            if (i + 1 < longitud) {
-                char siguiente = entrada.charAt(i + 1);
+    public List<TokenCompleto> escanear(String entrada, TablaSimbolos tabla) {
+        return recolectar(cursor(entrada, tabla));
+    }
 
-                if (c == '<' && siguiente == '=') {
-                    tokens.add(new TokenCompleto("OPERA_MENOR_IGUAL", "<="));
-                    i += 2;
-                    continue;
-                }
-                if (c == '>' && siguiente == '=') {
-                    tokens.add(new TokenCompleto("OPERA_MAYOR_IGUAL", ">="));
-                    i += 2;
-                    continue;
-                }
-                if (c == '!' && siguiente == '=') {
-                    tokens.add(new TokenCompleto("OPERA_DIFERENTE", "!="));
-                    i += 2;
-                    continue;
-                }
-                if (c == '=' && siguiente == '=') {
-                    tokens.add(new TokenCompleto("OPERA_IGUALDAD", "=="));
-                    i += 2;
-                    continue;
-                }
-            }
+    // Escaneo en paralelo por trozos (mismos tokens e ids de símbolos que escanear)
+    public List<TokenCompleto> escanearParalelo(String entrada) {
+        return escanearParalelo(entrada, ForkJoinPool.commonPool());
+    }
 
-            // Operadores simples: < > =
-            if (c == '<') {
-                tokens.add(new TokenCompleto("OPERA_MENOR", "<"));
-                i++;
-                continue;
-            }
-            if (c == '>') {
-                tokens.add(new TokenCompleto("OPERA_MAYOR", ">"));
-                i++;
-                continue;
-            }
-            if (c == '=') {
-                tokens.add(new TokenCompleto("ASIGNA", "="));
-                i++;
-                continue;
-            }
-            if (c == '!') {
-                tokens.add(new TokenCompleto("OPERA_NOT", "!"));
-                i++;
-                continue;
-            }
+    public List<TokenCompleto> escanearParalelo(String entrada, ForkJoinPool pool) {
+        if (entrada.length() < 2 * EscanerParalelo.TAMANO_MINIMO_TROZO) {
+            return escanear(entrada);
+        }
+        return new EscanerParalelo(this, pool).escanear(entrada, tablaSimbolos);
+    }
 
-            // Operadores y delimitadores simples
-            if (OPERADORES_SIMPLES.containsKey(c)) {
-                tokens.add(new TokenCompleto(OPERADORES_SIMPLES.get(c), String.valueOf(c)));
-                i++;
-                continue;
-            }
+    // Escaneo que se actualiza con cada edición del texto (ver LexerIncremental)
+    public LexerIncremental escanearIncremental(CharSequence entrada) {
+        return new LexerIncremental(this, tablaSimbolos, entrada);
+    }
 
-            System.err.println("Error Léxico: Carácter no reconocido '" + c + "' en posición " + i);
-            i++;
-        }
+    public List<TokenCompleto> escanearArchivo(Path archivo) throws IOException {
+        return recolectar(cursorArchivo(archivo));
+    }
 
+    private List<TokenCompleto> recolectar(CursorTokens cursor) {
+        List<TokenCompleto> tokens = new ArrayList<>();
+        while (cursor.siguiente()) {
+            tokens.add(cursor.token());
+        }
         return tokens;
     }
 
@@ -295,7 +285,7 @@ public class AnalizadorLexicoCompleto {
 
         Map<String, List<TokenCompleto>> grupos = new HashMap<>();
         for (TokenCompleto t : tokens) {
-            String categoria = obtenerCategoria(t.tipo);
+            String categoria = CATEGORIAS[t.codigo];
             grupos.computeIfAbsent(categoria, k -> new ArrayList<>()).add(t);
         }
 
@@ -313,7 +303,7 @@ public class AnalizadorLexicoCompleto {
         }
     }
 
-    private String obtenerCategoria(String tipo) {
+    private static String obtenerCategoria(String tipo) {
         if (tipo.startsWith("KEY_"))
             return "PALABRAS RESERVADAS";
         if (tipo.equals("ID"))
@@ -335,8 +325,22 @@ public class AnalizadorLexicoCompleto {
         return "OTROS";
     }
 
-    public static void main(String[] args) {
-        AnalizadorLexicoCompleto lexer = new AnalizadorLexicoCompleto();
+    public static void main(String[] args) throws IOException {
+        // --dfa selecciona el motor dirigido por tabla
+        MotorLexico motor = args.length > 0 && args[0].equals("--dfa") ? MotorLexico.TABLA_DFA : MotorLexico.MANUAL;
+        AnalizadorLexicoCompleto lexer = new AnalizadorLexicoCompleto(motor);
+
+        // --archivo <ruta> escanea un archivo mapeado en memoria en lugar del ejemplo
+        if (args.length > 1 && args[0].equals("--archivo")) {
+            List<TokenCompleto> tokens = lexer.escanearArchivo(Path.of(args[1]));
+            int contador = 1;
+            for (TokenCompleto t : tokens) {
+                System.out.printf("%3d. %s%n", contador++, t);
+            }
+            lexer.mostrarTablaSimbolos();
+            System.out.println("\nAnálisis léxico completado. Total de tokens: " + tokens.size());
+            return;
+        }
 
         String codigo = """
                 public class Main {
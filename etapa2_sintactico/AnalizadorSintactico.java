@@ -1,47 +1,59 @@
 
-import java.util.ArrayList;
 import java.util.List;
 
 public class AnalizadorSintactico {
 
     public static void procesarExpresion(String entrada) {
-        System.out.println("════════════════════════════════════════════════════════════════════════════════════════════════════");
-        System.out.println("                         EVALUANDO EXPRESIÓN                              ");
-        System.out.println("════════════════════════════════════════════════════════════════════════════════════════════════════");
-        System.out.println("📝 ENTRADA: " + entrada);
-        System.out.println("────────────────────────────────────────────────────────────────────────────────────────────────────");
+        procesarExpresion(entrada, true);
+    }
 
-// analizador lexico
-        AnalizadorLexicoCompleto lexer = new AnalizadorLexicoCompleto();
-        List<TokenCompleto> tokensRaw = lexer.escanear(entrada);
-        
-// quitar tokens null
-        List<TokenCompleto> tokensAletorios = new ArrayList<>();
-        for (TokenCompleto t : tokensRaw) {
-            tokensAletorios.add(t);
+// diagnostico = false: sin arbol, sin tablas y sin estado de pila; solo instrucciones
+    public static List<PasoPila> procesarExpresion(String entrada, boolean diagnostico) {
+        return procesarExpresion(entrada, diagnostico, false);
+    }
+
+// optimizar = true: plegado de constantes e identidades antes de generar codigo
+    public static List<PasoPila> procesarExpresion(String entrada, boolean diagnostico, boolean optimizar) {
+        return procesarExpresion(entrada, diagnostico, optimizar, null);
+    }
+
+// cache != null: la compilacion se toma de la cache si ya estaba (ver CacheExpresiones);
+// con diagnostico solo se usa si la cache guarda arboles y tablas
+    public static List<PasoPila> procesarExpresion(String entrada, boolean diagnostico, boolean optimizar,
+            CacheExpresiones cache) {
+        if (diagnostico) {
+            System.out.println("════════════════════════════════════════════════════════════════════════════════════════════════════");
+            System.out.println("                         EVALUANDO EXPRESIÓN                              ");
+            System.out.println("════════════════════════════════════════════════════════════════════════════════════════════════════");
+            System.out.println("📝 ENTRADA: " + entrada);
+            System.out.println("────────────────────────────────────────────────────────────────────────────────────────────────────");
         }
 
-// analizador sintactico
-        Parser parser = new Parser(tokensAletorios);
-        NodeAsignacionOExpresion ast = parser.parseInstruccion();
+// analisis lexico, sintactico, optimizacion y generacion de codigo intermedio
+        ExpresionCompilada compilada;
+        if (cache != null && !(diagnostico && cache.soloArtefactos())) {
+            compilada = cache.obtener(entrada, optimizar);
+        } else {
+            compilada = ExpresionCompilada.compilar(entrada, diagnostico, optimizar);
+        }
+        if (!diagnostico) {
+            return compilada.pasos;
+        }
 
 // imprimir arbol
         System.out.println("\n🌳 ÁRBOL SINTÁCTICO:");
-        ast.imprimir();
+        compilada.ast.imprimir();
 
-// generacion de codigo intermedio
-        GeneradorCodigoPila generador = new GeneradorCodigoPila();
-        
-// ast recorrido
-        if (ast.esAsignacion()) {
-            generador.generarCodigo(ast.asignacion);
-        } else {
-            generador.generarCodigo(ast.expresion);
+// arbol optimizado
+        if (optimizar) {
+            System.out.println("\n⚙️  ÁRBOL OPTIMIZADO (" + compilada.eliminadas + " instrucciones eliminadas):");
+            compilada.optimizado.imprimir();
         }
-        
+
 // tabla resultado
-        generador.mostrarTablaCodigoIntermedio();
+        GeneradorCodigoPila.mostrarTablaCodigoIntermedio(compilada.pasos);
         System.out.println();
+        return compilada.pasos;
     }
 
     public static void main(String[] args) {
@@ -66,5 +78,8 @@ public class AnalizadorSintactico {
 // ejemplo 4
         String ecuacion4 = "resultado = (10 + 20) * (30 - 5) / 10;";
         procesarExpresion(ecuacion4);
+        
+// ejemplo 5: el mismo con optimizacion
+        procesarExpresion(ecuacion4, true, true);
     }
 }
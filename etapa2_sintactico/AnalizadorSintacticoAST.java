@@ -1,8 +1,12 @@
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 // nodos del ast
+// hojas, operaciones y asignaciones no cambian despues de construirse (el optimizador
+// arma nodos nuevos), asi que CacheExpresiones puede compartir sus arboles entre hilos
 abstract class NodoAST {
     public abstract String getValor();
     
@@ -12,8 +16,8 @@ abstract class NodoAST {
 
 // hoja de id o num
 class NodoHoja extends NodoAST {
-    String tipo; 
-    String lexema;
+    final String tipo; 
+    final String lexema;
 
     public NodoHoja(String tipo, String lexema) {
         this.tipo = tipo;
@@ -33,13 +37,16 @@ class NodoHoja extends NodoAST {
 
 // operacion matematica
 class NodoOperacion extends NodoAST {
-    String operador;
-    String tipoNodo; 
-    NodoAST izquierdo;
-    NodoAST derecho;
+    final String operador;
+// tipo de token del operador (TipoToken.OPERA_*)
+    final int codigo;
+    final String tipoNodo; 
+    final NodoAST izquierdo;
+    final NodoAST derecho;
 
-    public NodoOperacion(String tipoNodo, String operador, NodoAST izquierdo, NodoAST derecho) {
+    public NodoOperacion(String tipoNodo, int codigo, String operador, NodoAST izquierdo, NodoAST derecho) {
         this.tipoNodo = tipoNodo;
+        this.codigo = codigo;
         this.operador = operador;
         this.izquierdo = izquierdo;
         this.derecho = derecho;
@@ -50,30 +57,44 @@ class NodoOperacion extends NodoAST {
         return operador;
     }
 
+// con pila explicita: cada entrada es { nodo, prefijo, esUltimo } o { null, linea, null }
+// para la linea del operador, que va entre los dos subarboles
     @Override
     public void imprimir(String prefijo, boolean esUltimo) {
-        System.out.println(prefijo + (esUltimo ? "└── " : "├── ") + tipoNodo);
-        
-        String nuevoPrefijo = prefijo + (esUltimo ? "    " : "│   ");
-        
-// subarbol izquierdo
-        if (izquierdo != null) {
-            izquierdo.imprimir(nuevoPrefijo, false);
-        }
-        
-        System.out.println(nuevoPrefijo + "├── " + operador);
-        
-// subarbol derecho
-        if (derecho != null) {
-            derecho.imprimir(nuevoPrefijo, true);
+        ArrayDeque<Object[]> pendientes = new ArrayDeque<>();
+        pendientes.push(new Object[] { this, prefijo, esUltimo });
+        while (!pendientes.isEmpty()) {
+            Object[] p = pendientes.pop();
+            if (p[0] == null) {
+                System.out.println(p[1]);
+                continue;
+            }
+            if (!(p[0] instanceof NodoOperacion)) {
+                ((NodoAST) p[0]).imprimir((String) p[1], (Boolean) p[2]);
+                continue;
+            }
+
+            NodoOperacion op = (NodoOperacion) p[0];
+            boolean ultimo = (Boolean) p[2];
+            System.out.println(p[1] + (ultimo ? "└── " : "├── ") + op.tipoNodo);
+            String nuevoPrefijo = p[1] + (ultimo ? "    " : "│   ");
+
+// se apilan al reves: subarbol izquierdo, operador, subarbol derecho
+            if (op.derecho != null) {
+                pendientes.push(new Object[] { op.derecho, nuevoPrefijo, true });
+            }
+            pendientes.push(new Object[] { null, nuevoPrefijo + "├── " + op.operador, null });
+            if (op.izquierdo != null) {
+                pendientes.push(new Object[] { op.izquierdo, nuevoPrefijo, false });
+            }
         }
     }
 }
 
 // asignacion
 class NodoAsignacion extends NodoAST {
-    NodoHoja variable;
-    NodoAST expresion;
+    final NodoHoja variable;
+    final NodoAST expresion;
 
     public NodoAsignacion(NodoHoja variable, NodoAST expresion) {
         this.variable = variable;
@@ -93,136 +114,593 @@ class NodoAsignacion extends NodoAST {
     }
 }
 
-// analizador sintactico recursivo
+// bloque { ... }
+class NodoBloque extends NodoAST {
+    List<NodoAST> sentencias;
+
+    public NodoBloque(List<NodoAST> sentencias) {
+        this.sentencias = sentencias;
+    }
+
+    @Override
+    public String getValor() {
+        return "{}";
+    }
+
+    @Override
+    public void imprimir(String prefijo, boolean esUltimo) {
+        imprimirSentencia(this, prefijo, esUltimo);
+    }
+
+// NodoAsignacion.imprimir no dibuja conector (es raiz en los ejemplos); dentro de un
+// programa se le pone uno para que quede colgada del arbol
+// con pila explicita como NodoOperacion.imprimir: cada entrada es { nodo, prefijo, esUltimo }
+// y los bloques e if/while/for anidados no gastan pila de hilos
+    static void imprimirSentencia(NodoAST sentencia, String prefijo, boolean esUltimo) {
+        ArrayDeque<Object[]> pendientes = new ArrayDeque<>();
+        pendientes.push(new Object[] { sentencia, prefijo, esUltimo });
+        while (!pendientes.isEmpty()) {
+            Object[] p = pendientes.pop();
+            NodoAST nodo = (NodoAST) p[0];
+            boolean ultimo = (Boolean) p[2];
+            String linea = p[1] + (ultimo ? "└── " : "├── ");
+            List<NodoAST> hijos = new ArrayList<>();
+            if (nodo instanceof NodoAsignacion) {
+                NodoAsignacion asig = (NodoAsignacion) nodo;
+                System.out.println(linea + "ASIGNACIÓN ( = )");
+                hijos.add(asig.variable);
+                hijos.add(asig.expresion);
+            } else if (nodo instanceof NodoBloque) {
+                System.out.println(linea + "BLOQUE { }");
+                hijos.addAll(((NodoBloque) nodo).sentencias);
+            } else if (nodo instanceof NodoSi) {
+                NodoSi si = (NodoSi) nodo;
+                System.out.println(linea + "SI");
+                hijos.add(si.condicion);
+                hijos.add(si.entonces);
+                if (si.sino != null) {
+                    hijos.add(si.sino);
+                }
+            } else if (nodo instanceof NodoMientras) {
+                NodoMientras mientras = (NodoMientras) nodo;
+                System.out.println(linea + "MIENTRAS");
+                hijos.add(mientras.condicion);
+                hijos.add(mientras.cuerpo);
+            } else if (nodo instanceof NodoPara) {
+                NodoPara para = (NodoPara) nodo;
+                System.out.println(linea + "PARA");
+                hijos.add(para.inicio);
+                hijos.add(para.condicion);
+                hijos.add(para.paso);
+                hijos.add(para.cuerpo);
+            } else {
+                nodo.imprimir((String) p[1], ultimo);
+                continue;
+            }
+
+// se apilan al reves para que salgan en orden; el ultimo hijo cierra la rama
+            String nuevoPrefijo = p[1] + (ultimo ? "    " : "│   ");
+            for (int i = hijos.size() - 1; i >= 0; i--) {
+                pendientes.push(new Object[] { hijos.get(i), nuevoPrefijo, i == hijos.size() - 1 });
+            }
+        }
+    }
+}
+
+// if condicion [then] sentencia [else sentencia]
+class NodoSi extends NodoAST {
+    NodoAST condicion;
+    NodoAST entonces;
+// null si no hay else
+    NodoAST sino;
+
+    public NodoSi(NodoAST condicion, NodoAST entonces, NodoAST sino) {
+        this.condicion = condicion;
+        this.entonces = entonces;
+        this.sino = sino;
+    }
+
+    @Override
+    public String getValor() {
+        return "if";
+    }
+
+    @Override
+    public void imprimir(String prefijo, boolean esUltimo) {
+        NodoBloque.imprimirSentencia(this, prefijo, esUltimo);
+    }
+}
+
+// while condicion [do] sentencia
+class NodoMientras extends NodoAST {
+    NodoAST condicion;
+    NodoAST cuerpo;
+
+    public NodoMientras(NodoAST condicion, NodoAST cuerpo) {
+        this.condicion = condicion;
+        this.cuerpo = cuerpo;
+    }
+
+    @Override
+    public String getValor() {
+        return "while";
+    }
+
+    @Override
+    public void imprimir(String prefijo, boolean esUltimo) {
+        NodoBloque.imprimirSentencia(this, prefijo, esUltimo);
+    }
+}
+
+// for ( inicio ; condicion ; paso ) sentencia
+class NodoPara extends NodoAST {
+    NodoAST inicio;
+    NodoAST condicion;
+    NodoAST paso;
+    NodoAST cuerpo;
+
+    public NodoPara(NodoAST inicio, NodoAST condicion, NodoAST paso, NodoAST cuerpo) {
+        this.inicio = inicio;
+        this.condicion = condicion;
+        this.paso = paso;
+        this.cuerpo = cuerpo;
+    }
+
+    @Override
+    public String getValor() {
+        return "for";
+    }
+
+    @Override
+    public void imprimir(String prefijo, boolean esUltimo) {
+        NodoBloque.imprimirSentencia(this, prefijo, esUltimo);
+    }
+}
+
+// sentencia compuesta que el parser ya empezo y a la que le falta una sentencia interna
+// BLOQUE espera la siguiente sentencia o '}'; SI, SI_SINO, MIENTRAS y PARA esperan su cuerpo
+class SentenciaPendiente {
+    static final int BLOQUE = 0;
+    static final int SI = 1;
+    static final int SI_SINO = 2;
+    static final int MIENTRAS = 3;
+    static final int PARA = 4;
+
+    int clase;
+    final NodoAST condicion;
+    final List<NodoAST> sentencias;
+    NodoAST entonces;
+    NodoAST inicio;
+    NodoAST paso;
+
+    SentenciaPendiente(int clase, NodoAST condicion) {
+        this.clase = clase;
+        this.condicion = condicion;
+        sentencias = clase == BLOQUE ? new ArrayList<>() : null;
+    }
+}
+
+// analizador sintactico
+// decide con a lo mas dos tokens de anticipacion (LL(2)) y nunca retrocede
+// todo su estado es de la entrada que se esta parseando: un parser por hilo, reutilizado
+// con reiniciar (ver ServicioCompilacion)
 class Parser {
-    private List<TokenCompleto> tokens;
-    private int posicionActual;
+    private final TokensAnticipados fuente;
+// null: cada nodo es un objeto nuevo
+    private FabricaNodos fabrica;
+// pilas de parseE (se reutilizan entre expresiones)
+    private final List<NodoAST> operandos = new ArrayList<>();
+    private final List<TokenCompleto> operadores = new ArrayList<>();
+// distinto de null mientras se construye un ArbolPlano: los operandos son indices de nodo
+    private ArbolPlano arbolPlano;
+    private int[] operandosPlanos = new int[16];
+    private int numOperandosPlanos;
+// sentencias compuestas a medio armar de parseSentencia
+    private final List<SentenciaPendiente> pendientes = new ArrayList<>();
+// tipo de nodo segun la precedencia del operador
+    private static final String[] TIPOS_NODO = { null, "L", "L", "R", "E", "T" };
     
     public Parser(List<TokenCompleto> tokens) {
-        this.tokens = tokens;
-        this.posicionActual = 0;
+        this.fuente = new TokensAnticipados(tokens);
+    }
+    
+// consume el cursor bajo demanda (se parsea mientras se escanea)
+    public Parser(CursorTokens cursor) {
+        this.fuente = new TokensAnticipados(cursor);
+    }
+    
+// parser sin entrada, para usarse con reiniciar
+    public Parser() {
+        this((CursorTokens) null);
+    }
+    
+// reutiliza el parser (y su buffer de anticipacion) para otra entrada
+    public void reiniciar(CursorTokens cursor) {
+        fuente.reiniciar(cursor);
+        pendientes.clear();
+    }
+
+    public void reiniciar(List<TokenCompleto> tokens) {
+        fuente.reiniciar(tokens);
+        pendientes.clear();
+    }
+
+// tokens consumidos desde reiniciar, y leidos (consumidos mas los que se miraron por
+// anticipacion): el resultado de lo parseado depende solo de los tokens leidos
+    public int tokensConsumidos() {
+        return fuente.consumidos();
+    }
+
+    public int tokensLeidos() {
+        return fuente.leidos();
+    }
+    
+// los nodos de expresion se piden a la fabrica (subarboles iguales quedan compartidos)
+    public void usarFabrica(FabricaNodos fabrica) {
+        this.fabrica = fabrica;
+    }
+    
+    private NodoHoja hoja(String tipo, String lexema) {
+        return fabrica == null ? new NodoHoja(tipo, lexema) : fabrica.hoja(tipo, lexema);
+    }
+    
+    private NodoOperacion operacion(String tipoNodo, TokenCompleto operador, NodoAST izq, NodoAST der) {
+        if (fabrica == null) {
+            return new NodoOperacion(tipoNodo, operador.codigo, operador.lexema, izq, der);
+        }
+        return fabrica.operacion(tipoNodo, operador.codigo, operador.lexema, izq, der);
     }
     
 // obtener token actual
     private TokenCompleto obtenerToken() {
-        if (posicionActual < tokens.size()) {
-            return tokens.get(posicionActual);
-        }
-        return new TokenCompleto("EOF", "");
+        return fuente.ver(0);
     }
     
 // consumir token
     private void consumir() {
-        posicionActual++;
+        fuente.consumir();
+    }
+    
+// misma instruccion construida dentro de un ArbolPlano; devuelve el indice de la raiz
+    public int parseInstruccion(ArbolPlano arbol) {
+        arbolPlano = arbol;
+        numOperandosPlanos = 0;
+        try {
+            int variable = -1;
+            if (obtenerToken().codigo == TipoToken.ID && fuente.ver(1).codigo == TipoToken.ASIGNA) {
+                variable = arbol.hoja(ArbolPlano.ID, obtenerToken().lexema);
+                consumir();
+                consumir();
+            }
+            parseExpresion(false);
+            int expresion = operandosPlanos[--numOperandosPlanos];
+            if (obtenerToken().codigo == TipoToken.FIN_SENTENCIA) {
+                consumir();
+            }
+            return variable < 0 ? expresion : arbol.asignacion(variable, expresion);
+        } finally {
+            arbolPlano = null;
+        }
     }
     
 // parseo de instruccion
+// id '=' decide la asignacion mirando dos tokens, sin consumir ni retroceder
     public NodeAsignacionOExpresion parseInstruccion() {
-// verificamos asignacion
-        int inicio = posicionActual;
-        
-        if (obtenerToken().tipo.equals("ID")) {
+        if (obtenerToken().codigo == TipoToken.ID && fuente.ver(1).codigo == TipoToken.ASIGNA) {
             TokenCompleto idVar = obtenerToken();
             consumir(); 
+            consumir(); 
             
-            if (obtenerToken().tipo.equals("ASIGNA")) {
-                consumir(); 
-                
 // parseamos expresion
-                NodoAST expr = parseE(); 
-                
+            NodoAST expr = parseE(false); 
+            
 // ignoramos fin bateria
-                if (obtenerToken().tipo.equals("FIN_SENTENCIA")) {
-                    consumir();
-                }
-                
-                return new NodeAsignacionOExpresion(
-                    new NodoAsignacion(new NodoHoja("id", idVar.lexema), expr)
-                );
+            if (obtenerToken().codigo == TipoToken.FIN_SENTENCIA) {
+                consumir();
             }
+            
+            return new NodeAsignacionOExpresion(
+                new NodoAsignacion(new NodoHoja("id", idVar.lexema), expr)
+            );
         }
         
 // parseamos expresion
-        posicionActual = inicio;
-        NodoAST expr = parseE();
+        NodoAST expr = parseE(false);
         
-        if (obtenerToken().tipo.equals("FIN_SENTENCIA")) {
+        if (obtenerToken().codigo == TipoToken.FIN_SENTENCIA) {
             consumir();
         }
         
         return new NodeAsignacionOExpresion(expr);
     }
 
-// sumas y restas
-    private NodoAST parseE() {
-        NodoAST nodoIzq = parseT(); 
-        
-        while (obtenerToken().tipo.equals("OPERA_SUMA") || obtenerToken().tipo.equals("OPERA_RESTA")) {
-            TokenCompleto operador = obtenerToken();
-            consumir(); 
-            NodoAST nodoDer = parseT(); 
-            
-            nodoIzq = new NodoOperacion("E", operador.lexema, nodoIzq, nodoDer);
+// programa completo: sentencias hasta el fin de la entrada, en una sola pasada
+// cada sentencia simple es un NodoAsignacion o la raiz de una expresion
+    public List<NodoAST> parsePrograma() {
+        List<NodoAST> sentencias = new ArrayList<>();
+        while (!finEntrada()) {
+            NodoAST sentencia = parseSentencia();
+            if (sentencia != null) {
+                sentencias.add(sentencia);
+            }
         }
-        
-        return nodoIzq;
+        return sentencias;
     }
-    
-// mult y div
-    private NodoAST parseT() {
-        NodoAST nodoIzq = parseF(); 
-        
-        while (obtenerToken().tipo.equals("OPERA_MULT") || obtenerToken().tipo.equals("OPERA_DIVID")) {
-            TokenCompleto operador = obtenerToken();
-            consumir(); 
-            NodoAST nodoDer = parseF(); 
-            
-            nodoIzq = new NodoOperacion("T", operador.lexema, nodoIzq, nodoDer);
-        }
-        
-        return nodoIzq;
+
+// true cuando ya no quedan tokens; para recorrer un programa sentencia por sentencia
+// sin guardar la lista completa (while (!finEntrada()) parseSentencia())
+    public boolean finEntrada() {
+        return obtenerToken().codigo == TipoToken.EOF;
     }
-    
-// id num y parentesis
-    private NodoAST parseF() {
-        TokenCompleto token = obtenerToken();
-        
-// caso id
-        if (token.tipo.equals("ID")) {
-            consumir();
-            return new NodoHoja("id", token.lexema);
+
+// una sentencia; null para un ';' suelto o un '}' sin abrir
+// con pila explicita de sentencias a medio armar (bloques abiertos y cuerpos de if, while
+// y for pendientes): el anidamiento no gasta pila de hilos
+// cada vuelta empieza una sentencia; si es compuesta se apila y se empieza la primera de
+// adentro, y cada sentencia terminada se entrega a la pendiente de arriba, que a su vez
+// puede terminar (se cierra el bloque, no hay else, ...)
+    public NodoAST parseSentencia() {
+        int base = pendientes.size();
+        while (true) {
+            NodoAST terminada = null;
+            TokenCompleto token = obtenerToken();
+            switch (token.codigo) {
+                case TipoToken.FIN_SENTENCIA:
+                    consumir();
+                    break;
+
+                case TipoToken.FIN_BLOQUE:
+                    System.err.println("Error de sintaxis: '}' sin '{'");
+                    consumir();
+                    break;
+
+// el bloque recien abierto recibe una sentencia nula: asi se cierra si viene '}' enseguida
+                case TipoToken.INI_BLOQUE:
+                    consumir();
+                    pendientes.add(new SentenciaPendiente(SentenciaPendiente.BLOQUE, null));
+                    break;
+
+                case TipoToken.KEY_IF: {
+                    consumir();
+                    NodoAST condicion = parseE(true);
+                    if (obtenerToken().codigo == TipoToken.KEY_THEN) {
+                        consumir();
+                    }
+                    pendientes.add(new SentenciaPendiente(SentenciaPendiente.SI, condicion));
+                    continue;
+                }
+
+                case TipoToken.KEY_WHILE: {
+                    consumir();
+                    NodoAST condicion = parseE(true);
+                    if (obtenerToken().codigo == TipoToken.KEY_DO) {
+                        consumir();
+                    }
+                    pendientes.add(new SentenciaPendiente(SentenciaPendiente.MIENTRAS, condicion));
+                    continue;
+                }
+
+                case TipoToken.KEY_FOR: {
+                    consumir();
+                    esperar(TipoToken.ABRE_PARENTESIS, "(");
+// la instruccion de inicio se lleva su ';'
+                    NodoAST inicio = parseInstruccion().getRaiz();
+                    NodoAST condicion = parseE(true);
+                    esperar(TipoToken.FIN_SENTENCIA, ";");
+                    NodoAST paso = parseInstruccion().getRaiz();
+                    esperar(TipoToken.CIERRA_PARENTESIS, ")");
+                    SentenciaPendiente para = new SentenciaPendiente(SentenciaPendiente.PARA, condicion);
+                    para.inicio = inicio;
+                    para.paso = paso;
+                    pendientes.add(para);
+                    continue;
+                }
+
+                default:
+                    terminada = parseInstruccion().getRaiz();
+            }
+
+// se entrega la sentencia terminada hacia abajo mientras las pendientes se completen
+            boolean completa = true;
+            while (completa && pendientes.size() > base) {
+                SentenciaPendiente p = ultimo(pendientes);
+                switch (p.clase) {
+                    case SentenciaPendiente.BLOQUE:
+                        if (terminada != null) {
+                            p.sentencias.add(terminada);
+                        }
+                        if (obtenerToken().codigo != TipoToken.FIN_BLOQUE && obtenerToken().codigo != TipoToken.EOF) {
+                            completa = false;
+                            break;
+                        }
+                        esperar(TipoToken.FIN_BLOQUE, "}");
+                        terminada = new NodoBloque(p.sentencias);
+                        break;
+
+                    case SentenciaPendiente.SI:
+                        p.entonces = cuerpoObligatorio(terminada);
+                        if (obtenerToken().codigo == TipoToken.KEY_ELSE) {
+                            consumir();
+                            p.clase = SentenciaPendiente.SI_SINO;
+                            completa = false;
+                            break;
+                        }
+                        terminada = new NodoSi(p.condicion, p.entonces, null);
+                        break;
+
+                    case SentenciaPendiente.SI_SINO:
+                        terminada = new NodoSi(p.condicion, p.entonces, cuerpoObligatorio(terminada));
+                        break;
+
+                    case SentenciaPendiente.MIENTRAS:
+                        terminada = new NodoMientras(p.condicion, cuerpoObligatorio(terminada));
+                        break;
+
+                    default:
+                        terminada = new NodoPara(p.inicio, p.condicion, p.paso, cuerpoObligatorio(terminada));
+                }
+                if (completa) {
+                    pendientes.remove(pendientes.size() - 1);
+                }
+            }
+            if (completa) {
+                return terminada;
+            }
         }
-        
-// caso num
-        if (token.tipo.equals("NUM") || token.tipo.equals("NUM_FLOAT")) {
+    }
+
+// cuerpo de if, while o for: un ';' solo es un bloque vacio
+    private static NodoAST cuerpoObligatorio(NodoAST sentencia) {
+        return sentencia != null ? sentencia : new NodoBloque(new ArrayList<>());
+    }
+
+    private void esperar(int codigo, String texto) {
+        if (obtenerToken().codigo == codigo) {
             consumir();
-            return new NodoHoja("num", token.lexema);
+        } else {
+            System.err.println("Error de sintaxis: Falta '" + texto + "'");
         }
-        
-// caso parentesis
-        if (token.tipo.equals("ABRE_PARENTESIS")) {
-            consumir(); 
-            NodoAST nodoExpr = parseE(); 
-            
-            if (obtenerToken().tipo.equals("CIERRA_PARENTESIS")) {
-                consumir(); 
+    }
+
+// expresion completa por precedencia de operadores (shunting-yard) con pilas explicitas:
+// la profundidad de parentesis y el largo de las cadenas no gastan pila de hilos
+// arma el mismo arbol que la gramatica E -> E (+|-) T, T -> T (*|/) F, F -> id | num | ( E ):
+// asociativo a la izquierda, nodos "E" para + y - y "T" para * y /
+// condicion = true acepta ademas comparaciones (nodos "R") y and/or (nodos "L"),
+// para las condiciones de if, while y for
+    private NodoAST parseE(boolean condicion) {
+        parseExpresion(condicion);
+        return operandos.remove(operandos.size() - 1);
+    }
+
+// deja la raiz de la expresion en la pila de operandos (de objetos o plana)
+    private void parseExpresion(boolean condicion) {
+        int baseOperadores = operadores.size();
+        int parentesisAbiertos = 0;
+
+        while (true) {
+// se espera un operando (F)
+            TokenCompleto token = obtenerToken();
+            if (token.codigo == TipoToken.ABRE_PARENTESIS) {
+                consumir();
+                operadores.add(token);
+                parentesisAbiertos++;
+                continue;
+            }
+            if (token.codigo == TipoToken.ID) {
+                consumir();
+                apilarHoja(ArbolPlano.ID, "id", token.lexema);
+            } else if (token.codigo == TipoToken.NUM || token.codigo == TipoToken.NUM_FLOAT) {
+                consumir();
+                apilarHoja(ArbolPlano.NUM, "num", token.lexema);
             } else {
-                System.err.println("Error de sintaxis: Falta paréntesis");
+                System.err.println("Error sintaxis");
+                consumir();
+                apilarHoja(ArbolPlano.ERR, "ERR", "error");
+            }
+
+// se espera un operador, un cierre de parentesis o el fin de la expresion
+            while (true) {
+                token = obtenerToken();
+                int precedencia = precedencia(token.codigo, condicion);
+                if (precedencia > 0) {
+                    while (operadores.size() > baseOperadores
+                            && precedencia(ultimo(operadores).codigo, condicion) >= precedencia) {
+                        reducir(condicion);
+                    }
+                    consumir();
+                    operadores.add(token);
+                    break;
+                }
+
+                if (parentesisAbiertos == 0) {
+                    while (operadores.size() > baseOperadores) {
+                        reducir(condicion);
+                    }
+                    return;
+                }
+
+// cierra el parentesis mas reciente; si falta, se reporta y se cierra igual
+                while (ultimo(operadores).codigo != TipoToken.ABRE_PARENTESIS) {
+                    reducir(condicion);
+                }
+                operadores.remove(operadores.size() - 1);
+                parentesisAbiertos--;
+                if (token.codigo == TipoToken.CIERRA_PARENTESIS) {
+                    consumir();
+                } else {
+                    System.err.println("Error de sintaxis: Falta paréntesis");
+                }
             }
+        }
+    }
 
-            return nodoExpr;
+// 0 si no es operador binario; de menor a mayor: or, and, comparaciones, + -, * /
+    private static int precedencia(int codigo, boolean condicion) {
+        switch (codigo) {
+            case TipoToken.OPERA_MULT:
+            case TipoToken.OPERA_DIVID:
+                return 5;
+            case TipoToken.OPERA_SUMA:
+            case TipoToken.OPERA_RESTA:
+                return 4;
+            case TipoToken.OPERA_MAYOR:
+            case TipoToken.OPERA_MENOR:
+            case TipoToken.OPERA_IGUALDAD:
+            case TipoToken.OPERA_DIFERENTE:
+            case TipoToken.OPERA_MAYOR_IGUAL:
+            case TipoToken.OPERA_MENOR_IGUAL:
+                return condicion ? 3 : 0;
+            case TipoToken.OPERA_AND:
+                return condicion ? 2 : 0;
+            case TipoToken.OPERA_OR:
+                return condicion ? 1 : 0;
+            default:
+                return 0;
         }
-        
-        System.err.println("Error sintaxis");
-        consumir(); 
-        return new NodoHoja("ERR", "error");
+    }
+
+    private void apilarHoja(int clasePlana, String tipo, String lexema) {
+        if (arbolPlano != null) {
+            apilarPlano(arbolPlano.hoja(clasePlana, lexema));
+        } else if (clasePlana == ArbolPlano.ERR) {
+            operandos.add(new NodoHoja(tipo, lexema));
+        } else {
+            operandos.add(hoja(tipo, lexema));
+        }
+    }
+
+    private void apilarPlano(int nodo) {
+        if (numOperandosPlanos == operandosPlanos.length) {
+            operandosPlanos = Arrays.copyOf(operandosPlanos, numOperandosPlanos * 2);
+        }
+        operandosPlanos[numOperandosPlanos++] = nodo;
+    }
+
+    private static <T> T ultimo(List<T> pila) {
+        return pila.get(pila.size() - 1);
+    }
+
+// saca un operador y sus dos operandos y mete el nodo resultante
+    private void reducir(boolean condicion) {
+        TokenCompleto operador = operadores.remove(operadores.size() - 1);
+        if (arbolPlano != null) {
+            int der = operandosPlanos[--numOperandosPlanos];
+            int izq = operandosPlanos[--numOperandosPlanos];
+            apilarPlano(arbolPlano.operacion(operador.codigo, operador.lexema, izq, der));
+            return;
+        }
+        NodoAST nodoDer = operandos.remove(operandos.size() - 1);
+        NodoAST nodoIzq = operandos.remove(operandos.size() - 1);
+        String tipoNodo = TIPOS_NODO[precedencia(operador.codigo, condicion)];
+        operandos.add(operacion(tipoNodo, operador, nodoIzq, nodoDer));
     }
 }
 
 // clase wrapper asignacion expresion
 class NodeAsignacionOExpresion {
-    NodoAsignacion asignacion;
-    NodoAST expresion;
+    final NodoAsignacion asignacion;
+    final NodoAST expresion;
     
     public NodeAsignacionOExpresion(NodoAsignacion asig) {
         this.asignacion = asig;
@@ -242,6 +720,11 @@ class NodeAsignacionOExpresion {
         return esAsignacion() ? asignacion.expresion : expresion;
     }
     
+// la asignacion completa o la expresion
+    public NodoAST getRaiz() {
+        return esAsignacion() ? asignacion : expresion;
+    }
+    
     public void imprimir() {
         if (esAsignacion()) {
             asignacion.imprimir("", true);
@@ -0,0 +1,272 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// ast plano: cada nodo es un indice en arreglos paralelos de int, sin un objeto por nodo
+//   clase[n]      ID, NUM, ERR, OPERACION o ASIGNACION
+//   izquierdo[n]  hijo izquierdo (en ASIGNACION, la hoja de la variable), -1 en hojas
+//   derecho[n]    hijo derecho (en ASIGNACION, la expresion), -1 en hojas
+//   lexema[n]     indice del texto en el pool de lexemas (operador o valor de la hoja)
+// el tipo de token de una OPERACION no se guarda por nodo: sale de su lexema (el mismo
+// texto de operador siempre tiene el mismo tipo)
+// los hijos siempre tienen indice menor que el padre; varias instrucciones pueden vivir
+// en el mismo arbol y cada una se identifica por el indice de su raiz
+// los arreglos crecen al doble; compactar() los recorta al terminar de armar un lote
+class ArbolPlano {
+    static final int ID = 0;
+    static final int NUM = 1;
+    static final int ERR = 2;
+    static final int OPERACION = 3;
+    static final int ASIGNACION = 4;
+
+    private int[] clase = new int[64];
+    private int[] izquierdo = new int[64];
+    private int[] derecho = new int[64];
+    private int[] lexema = new int[64];
+    private int tamano;
+
+// cada texto distinto se guarda una sola vez; los textos llegan internados por el
+// PoolLexemas del lexer, asi que el indice compara por identidad
+    private final List<String> lexemas = new ArrayList<>();
+    private final Map<String, Integer> indiceLexemas = new IdentityHashMap<>();
+// tipo de token de cada lexema de operador (-1 en los demas)
+    private int[] codigoLexema = new int[16];
+
+    int hoja(int clase, String texto) {
+        return nuevo(clase, -1, -1, indiceLexema(texto));
+    }
+
+    int operacion(int codigo, String operador, int izquierdo, int derecho) {
+        int lex = indiceLexema(operador);
+        codigoLexema[lex] = codigo;
+        return nuevo(OPERACION, izquierdo, derecho, lex);
+    }
+
+    int asignacion(int variable, int expresion) {
+        return nuevo(ASIGNACION, variable, expresion, indiceLexema("="));
+    }
+
+    private int nuevo(int c, int izq, int der, int lex) {
+        if (tamano == clase.length) {
+            redimensionar(tamano * 2);
+        }
+        clase[tamano] = c;
+        izquierdo[tamano] = izq;
+        derecho[tamano] = der;
+        lexema[tamano] = lex;
+        return tamano++;
+    }
+
+    private int indiceLexema(String texto) {
+        Integer indice = indiceLexemas.get(texto);
+        if (indice == null) {
+            indice = lexemas.size();
+            lexemas.add(texto);
+            indiceLexemas.put(texto, indice);
+            if (indice == codigoLexema.length) {
+                codigoLexema = Arrays.copyOf(codigoLexema, indice * 2);
+            }
+            codigoLexema[indice] = -1;
+        }
+        return indice;
+    }
+
+    private void redimensionar(int capacidad) {
+        clase = Arrays.copyOf(clase, capacidad);
+        izquierdo = Arrays.copyOf(izquierdo, capacidad);
+        derecho = Arrays.copyOf(derecho, capacidad);
+        lexema = Arrays.copyOf(lexema, capacidad);
+    }
+
+// recorta los arreglos al numero de nodos (despues de armar un lote que ya no crece)
+    void compactar() {
+        if (clase.length > tamano) {
+            redimensionar(Math.max(tamano, 1));
+        }
+    }
+
+// borra los nodos y conserva la capacidad y el pool de lexemas
+    void limpiar() {
+        tamano = 0;
+    }
+
+    int tamano() {
+        return tamano;
+    }
+
+    int numLexemas() {
+        return lexemas.size();
+    }
+
+    int clase(int nodo) {
+        return clase[nodo];
+    }
+
+// tipo de token del operador (OPERACION), -1 en otro caso
+    int codigo(int nodo) {
+        return clase[nodo] == OPERACION ? codigoLexema[lexema[nodo]] : -1;
+    }
+
+    int izquierdo(int nodo) {
+        return izquierdo[nodo];
+    }
+
+    int derecho(int nodo) {
+        return derecho[nodo];
+    }
+
+    String lexema(int nodo) {
+        return lexemas.get(lexema[nodo]);
+    }
+
+// Adaptador al árbol de objetos (para imprimir o para el código que espera NodoAST)
+
+    NodeAsignacionOExpresion aObjetos(int raiz) {
+        NodoAST nodo = aNodo(raiz);
+        if (nodo instanceof NodoAsignacion) {
+            return new NodeAsignacionOExpresion((NodoAsignacion) nodo);
+        }
+        return new NodeAsignacionOExpresion(nodo);
+    }
+
+// como los hijos tienen indice menor, basta con construir en orden creciente los
+// nodos alcanzables desde la raiz
+    NodoAST aNodo(int raiz) {
+        boolean[] alcanzable = new boolean[raiz + 1];
+        int[] pendientes = new int[16];
+        int n = 0;
+        int menor = raiz;
+        pendientes[n++] = raiz;
+        while (n > 0) {
+            int nodo = pendientes[--n];
+            alcanzable[nodo] = true;
+            menor = Math.min(menor, nodo);
+            if (izquierdo[nodo] >= 0) {
+                if (n + 2 > pendientes.length)
+                    pendientes = Arrays.copyOf(pendientes, pendientes.length * 2);
+                pendientes[n++] = izquierdo[nodo];
+                pendientes[n++] = derecho[nodo];
+            }
+        }
+
+        NodoAST[] objetos = new NodoAST[raiz + 1];
+        for (int i = menor; i <= raiz; i++) {
+            if (!alcanzable[i])
+                continue;
+            switch (clase[i]) {
+                case ID:
+                    objetos[i] = new NodoHoja("id", lexema(i));
+                    break;
+                case NUM:
+                    objetos[i] = new NodoHoja("num", lexema(i));
+                    break;
+                case ERR:
+                    objetos[i] = new NodoHoja("ERR", lexema(i));
+                    break;
+                case ASIGNACION:
+                    objetos[i] = new NodoAsignacion((NodoHoja) objetos[izquierdo[i]], objetos[derecho[i]]);
+                    break;
+                default:
+                    objetos[i] = new NodoOperacion(tipoNodo(codigo(i)), codigo(i), lexema(i),
+                            objetos[izquierdo[i]], objetos[derecho[i]]);
+            }
+        }
+        return objetos[raiz];
+    }
+
+// mismo tipo de nodo que arma Parser
+    static String tipoNodo(int codigo) {
+        switch (codigo) {
+            case TipoToken.OPERA_SUMA:
+            case TipoToken.OPERA_RESTA:
+                return "E";
+            case TipoToken.OPERA_MULT:
+            case TipoToken.OPERA_DIVID:
+                return "T";
+            case TipoToken.OPERA_AND:
+            case TipoToken.OPERA_OR:
+                return "L";
+            default:
+                return "R";
+        }
+    }
+
+    void imprimir(int raiz) {
+        aObjetos(raiz).imprimir();
+    }
+
+// lote de instrucciones en un solo arbol plano contra el arbol de objetos:
+// mismas instrucciones de pila y memoria que queda ocupada por cada forma
+    public static void main(String[] args) {
+        String[] ejemplos = {
+                "x + y / (a - b / c) * z + w;",
+                "a / b + (c * d) - e * f;",
+                "area = base * altura / 2;",
+                "resultado = (10 + 20) * (30 - 5) / 10;"
+        };
+        ArbolPlano arbol = new ArbolPlano();
+        Parser parser = new Parser();
+        AnalizadorLexicoCompleto lexer = new AnalizadorLexicoCompleto();
+
+        parser.reiniciar(lexer.cursor(ejemplos[0]));
+        arbol.imprimir(parser.parseInstruccion(arbol));
+        arbol.limpiar();
+
+        int instrucciones = 1_000_000;
+        long antes = memoriaOcupada();
+        NodeAsignacionOExpresion[] objetos = new NodeAsignacionOExpresion[instrucciones];
+        for (int i = 0; i < instrucciones; i++) {
+            lexer.reiniciar();
+            parser.reiniciar(lexer.cursor(ejemplos[i % ejemplos.length]));
+            objetos[i] = parser.parseInstruccion();
+        }
+        long bytesObjetos = memoriaOcupada() - antes;
+
+        antes = memoriaOcupada();
+        int[] raices = new int[instrucciones];
+        for (int i = 0; i < instrucciones; i++) {
+            lexer.reiniciar();
+            parser.reiniciar(lexer.cursor(ejemplos[i % ejemplos.length]));
+            raices[i] = parser.parseInstruccion(arbol);
+        }
+        arbol.compactar();
+        long bytesPlano = memoriaOcupada() - antes;
+
+        GeneradorCodigoPila generador = new GeneradorCodigoPila(false);
+        int diferencias = 0;
+        for (int i = 0; i < instrucciones; i++) {
+            generador.generarCodigo(objetos[i].getRaiz());
+            List<String> esperado = new ArrayList<>();
+            for (PasoPila p : generador.getPasos()) {
+                esperado.add(p.instruccion);
+            }
+            generador.generarCodigo(arbol, raices[i]);
+            List<String> plano = new ArrayList<>();
+            for (PasoPila p : generador.getPasos()) {
+                plano.add(p.instruccion);
+            }
+            if (!plano.equals(esperado)) {
+                diferencias++;
+            }
+        }
+
+        System.out.printf("%d instrucciones: %d nodos planos, %d lexemas distintos, %d diferencias%n",
+                instrucciones, arbol.tamano(), arbol.numLexemas(), diferencias);
+        System.out.printf("memoria ocupada: árbol de objetos %.1f MB, árbol plano %.1f MB%n", bytesObjetos / 1e6,
+                bytesPlano / 1e6);
+        if (diferencias > 0 || bytesPlano >= bytesObjetos) {
+            System.err.println("ERROR: el árbol plano debe dar las mismas instrucciones y ocupar menos memoria");
+            System.exit(1);
+        }
+    }
+
+    private static long memoriaOcupada() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime r = Runtime.getRuntime();
+        return r.totalMemory() - r.freeMemory();
+    }
+}
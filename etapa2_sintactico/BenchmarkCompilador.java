@@ -0,0 +1,236 @@
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// resultado de un caso de benchmark
+class ResultadoBenchmark {
+    String caso;
+    int tamano;
+    double opsPorSegundo;
+    double bytesPorOp;
+    long colecciones;
+    long msGc;
+
+    String aCsv() {
+        return String.format(Locale.ROOT, "%s,%d,%.1f,%.0f,%d,%d", caso, tamano, opsPorSegundo, bytesPorOp,
+                colecciones, msGc);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%-28s %8d %14.1f %14.0f %6d %8d", caso, tamano, opsPorSegundo, bytesPorOp,
+                colecciones, msGc);
+    }
+}
+
+// benchmarks del lexer, el parser y el generador de codigo de pila
+// cada caso se calienta y luego se mide por tiempo fijo; reporta throughput (ops/s),
+// bytes asignados por operacion (contador de asignacion del hilo) y actividad del GC
+//
+// uso: java BenchmarkCompilador [--guardar base.csv] [--comparar base.csv] [--tolerancia 0.10]
+//      -Dbench.ms=1000 cambia el tiempo de medicion por caso (el calentamiento es la mitad)
+// con --comparar termina con codigo 1 si algun caso baja mas que la tolerancia
+public class BenchmarkCompilador {
+    private static final int[] TAMANOS = { 100, 1_000, 10_000 };
+    private static final long MS_MEDICION = Long.getLong("bench.ms", 1000);
+
+    // evita que el JIT elimine el trabajo medido
+    static volatile Object sumidero;
+
+    private static final com.sun.management.ThreadMXBean HILOS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws IOException {
+        Path guardar = null;
+        Path comparar = null;
+        double tolerancia = 0.10;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--guardar":
+                    guardar = Path.of(args[i + 1]);
+                    break;
+                case "--comparar":
+                    comparar = Path.of(args[i + 1]);
+                    break;
+                case "--tolerancia":
+                    tolerancia = Double.parseDouble(args[i + 1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Opción desconocida: " + args[i]);
+            }
+        }
+
+        System.out.printf("%-28s %8s %14s %14s %6s %8s%n", "CASO", "TAMAÑO", "OPS/S", "BYTES/OP", "GCs", "MS GC");
+        List<ResultadoBenchmark> resultados = new ArrayList<>();
+        for (int tamano : TAMANOS) {
+            resultados.addAll(ejecutarCasos(tamano));
+        }
+
+        if (guardar != null) {
+            List<String> lineas = new ArrayList<>();
+            lineas.add("caso,tamano,ops_por_segundo,bytes_por_op,colecciones,ms_gc");
+            for (ResultadoBenchmark r : resultados) {
+                lineas.add(r.aCsv());
+            }
+            Files.write(guardar, lineas, StandardCharsets.UTF_8);
+        }
+        if (comparar != null && !sinRegresiones(resultados, comparar, tolerancia)) {
+            System.exit(1);
+        }
+    }
+
+    private static List<ResultadoBenchmark> ejecutarCasos(int tamano) {
+        List<ResultadoBenchmark> resultados = new ArrayList<>();
+
+        // Lexer: muchos identificadores distintos, con la tabla de símbolos creciendo
+        String identificadores = muchosIdentificadores(tamano);
+        AnalizadorLexicoCompleto lexer = new AnalizadorLexicoCompleto();
+        resultados.add(medir("lexer.identificadores", tamano, () -> {
+            lexer.reiniciar();
+            return lexer.escanear(identificadores);
+        }));
+        AnalizadorLexicoCompleto lexerDfa = new AnalizadorLexicoCompleto(MotorLexico.TABLA_DFA);
+        resultados.add(medir("lexer.identificadores.dfa", tamano, () -> {
+            lexerDfa.reiniciar();
+            return lexerDfa.escanear(identificadores);
+        }));
+
+        // Parser: paréntesis anidados y cadenas largas de +
+        String parentesis = parentesisAnidados(tamano);
+        String sumas = cadenaDeSumas(tamano);
+        List<TokenCompleto> tokensParentesis = new AnalizadorLexicoCompleto().escanear(parentesis);
+        List<TokenCompleto> tokensSumas = new AnalizadorLexicoCompleto().escanear(sumas);
+        resultados.add(medir("parser.parentesis", tamano,
+                () -> new Parser(tokensParentesis).parseInstruccion()));
+        resultados.add(medir("parser.sumas", tamano,
+                () -> new Parser(tokensSumas).parseInstruccion()));
+
+        // Generador: mismo árbol, con y sin diagnóstico
+        NodeAsignacionOExpresion astSumas = new Parser(tokensSumas).parseInstruccion();
+        NodeAsignacionOExpresion astParentesis = new Parser(tokensParentesis).parseInstruccion();
+        GeneradorCodigoPila diagnostico = new GeneradorCodigoPila(true);
+        GeneradorCodigoPila silencioso = new GeneradorCodigoPila(false);
+        resultados.add(medir("generador.sumas", tamano, () -> {
+            diagnostico.generarCodigo(astSumas.asignacion);
+            return diagnostico.getPasos();
+        }));
+        resultados.add(medir("generador.sumas.silencioso", tamano, () -> {
+            silencioso.generarCodigo(astSumas.asignacion);
+            return silencioso.getPasos();
+        }));
+        resultados.add(medir("generador.parentesis", tamano, () -> {
+            diagnostico.generarCodigo(astParentesis.asignacion);
+            return diagnostico.getPasos();
+        }));
+        return resultados;
+    }
+
+    static ResultadoBenchmark medir(String caso, int tamano, Supplier<Object> operacion) {
+        // calentamiento
+        long fin = System.nanoTime() + MS_MEDICION * 500_000L;
+        while (System.nanoTime() < fin) {
+            sumidero = operacion.get();
+        }
+
+        long hilo = Thread.currentThread().getId();
+        long colecciones = coleccionesGc();
+        long msGc = tiempoGc();
+        long bytes = HILOS.getThreadAllocatedBytes(hilo);
+        long inicio = System.nanoTime();
+        fin = inicio + MS_MEDICION * 1_000_000L;
+        long ops = 0;
+        long ahora;
+        do {
+            sumidero = operacion.get();
+            ops++;
+            ahora = System.nanoTime();
+        } while (ahora < fin);
+
+        ResultadoBenchmark r = new ResultadoBenchmark();
+        r.caso = caso;
+        r.tamano = tamano;
+        r.opsPorSegundo = ops * 1e9 / (ahora - inicio);
+        r.bytesPorOp = (double) (HILOS.getThreadAllocatedBytes(hilo) - bytes) / ops;
+        r.colecciones = coleccionesGc() - colecciones;
+        r.msGc = tiempoGc() - msGc;
+        System.out.println(r);
+        return r;
+    }
+
+    private static long coleccionesGc() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionCount());
+        }
+        return total;
+    }
+
+    private static long tiempoGc() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+    // compara ops/s contra una corrida guardada con --guardar
+    private static boolean sinRegresiones(List<ResultadoBenchmark> resultados, Path base, double tolerancia)
+            throws IOException {
+        Map<String, Double> anteriores = new HashMap<>();
+        List<String> lineas = Files.readAllLines(base, StandardCharsets.UTF_8);
+        for (int i = 1; i < lineas.size(); i++) {
+            String[] campos = lineas.get(i).split(",");
+            anteriores.put(campos[0] + "/" + campos[1], Double.parseDouble(campos[2]));
+        }
+
+        boolean ok = true;
+        for (ResultadoBenchmark r : resultados) {
+            Double anterior = anteriores.get(r.caso + "/" + r.tamano);
+            if (anterior != null && r.opsPorSegundo < anterior * (1 - tolerancia)) {
+                System.out.printf(Locale.ROOT, "REGRESIÓN %s (%d): %.1f ops/s contra %.1f%n", r.caso, r.tamano,
+                        r.opsPorSegundo, anterior);
+                ok = false;
+            }
+        }
+        return ok;
+    }
+
+    // Entradas sintéticas
+
+    private static String muchosIdentificadores(int n) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            sb.append("var").append(i).append(" = var").append(i + 1).append(" + ").append(i).append(";\n");
+        }
+        return sb.toString();
+    }
+
+    private static String parentesisAnidados(int n) {
+        StringBuilder sb = new StringBuilder("r = ");
+        for (int i = 0; i < n; i++) {
+            sb.append("(a").append(i % 10).append(" * ");
+        }
+        sb.append("x");
+        for (int i = 0; i < n; i++) {
+            sb.append(')');
+        }
+        return sb.append(';').toString();
+    }
+
+    private static String cadenaDeSumas(int n) {
+        StringBuilder sb = new StringBuilder("total = x0");
+        for (int i = 1; i < n; i++) {
+            sb.append(" + x").append(i % 100);
+        }
+        return sb.append(';').toString();
+    }
+}
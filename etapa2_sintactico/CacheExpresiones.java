@@ -0,0 +1,259 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+// resultado de compilar una expresion, sin nada mutable (se comparte entre hilos):
+// los nodos de expresion y asignacion tienen sus campos final y los pasos son una lista
+// no modificable de PasoPila que tampoco cambian
+class ExpresionCompilada {
+// null si solo se guardan artefactos
+    final NodeAsignacionOExpresion ast;
+    final NodeAsignacionOExpresion optimizado;
+    final int eliminadas;
+    final List<PasoPila> pasos;
+
+    private ExpresionCompilada(NodeAsignacionOExpresion ast, NodeAsignacionOExpresion optimizado, int eliminadas,
+            List<PasoPila> pasos) {
+        this.ast = ast;
+        this.optimizado = optimizado;
+        this.eliminadas = eliminadas;
+        this.pasos = pasos;
+    }
+
+// lexer, parser, optimizador (si se pide) y generador nuevos en cada llamada
+// diagnostico = false: sin arboles y solo las instrucciones (sin estado de pila ni explicaciones)
+    static ExpresionCompilada compilar(String entrada, boolean diagnostico, boolean optimizar) {
+        AnalizadorLexicoCompleto lexer = new AnalizadorLexicoCompleto();
+        Parser parser = new Parser(lexer.cursor(entrada));
+        NodeAsignacionOExpresion ast = parser.parseInstruccion();
+
+        NodeAsignacionOExpresion optimizado = null;
+        int eliminadas = 0;
+        if (optimizar) {
+            OptimizadorAST optimizador = new OptimizadorAST();
+            optimizado = optimizador.optimizar(ast);
+            eliminadas = optimizador.getInstruccionesEliminadas();
+        }
+
+        GeneradorCodigoPila generador = new GeneradorCodigoPila(diagnostico);
+        generador.generarCodigo((optimizar ? optimizado : ast).getRaiz());
+        List<PasoPila> pasos = Collections.unmodifiableList(new ArrayList<>(generador.getPasos()));
+        if (!diagnostico) {
+            return new ExpresionCompilada(null, null, 0, pasos);
+        }
+        return new ExpresionCompilada(ast, optimizado, eliminadas, pasos);
+    }
+}
+
+// cache de expresiones compiladas para servicios que mandan las mismas formulas una y otra vez
+// la clave es el texto normalizado: los lexemas de los tokens separados por un espacio
+// (volver a escanear ese texto da los mismos tokens, asi que dos entradas con la misma
+// clave compilan igual aunque cambien los espacios), mas si se optimiza o no
+// se reparte en segmentos, cada uno un LinkedHashMap en orden de acceso con su propio
+// candado: el desalojo es LRU dentro de cada segmento y el total no pasa de la capacidad
+// en un fallo se compila fuera del candado; si dos hilos compilan la misma clave a la
+// vez se queda la primera que se guarde
+// soloArtefactos = true: se guardan solo las instrucciones, sin arboles ni tablas de
+// diagnostico (menos memoria; una consulta con diagnostico no usa la cache)
+// los errores de sintaxis de una expresion solo se reportan la primera vez que se compila
+class CacheExpresiones {
+    private static final int SEGMENTOS = 16;
+
+    private final Segmento[] segmentos;
+    private final boolean soloArtefactos;
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+    private final LongAdder desalojos = new LongAdder();
+
+    private final class Segmento extends LinkedHashMap<String, ExpresionCompilada> {
+        private static final long serialVersionUID = 1L;
+        private final int capacidad;
+
+        Segmento(int capacidad) {
+            super(16, 0.75f, true);
+            this.capacidad = capacidad;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ExpresionCompilada> eldest) {
+            if (size() <= capacidad)
+                return false;
+            desalojos.increment();
+            return true;
+        }
+    }
+
+// lexer por hilo para normalizar (reiniciar tambien libera los lexemas de su pool)
+    private static final ThreadLocal<AnalizadorLexicoCompleto> NORMALIZADOR =
+            ThreadLocal.withInitial(AnalizadorLexicoCompleto::new);
+
+    public CacheExpresiones(int capacidad) {
+        this(capacidad, false);
+    }
+
+    public CacheExpresiones(int capacidad, boolean soloArtefactos) {
+        if (capacidad < 1)
+            throw new IllegalArgumentException("capacidad debe ser positiva: " + capacidad);
+        this.soloArtefactos = soloArtefactos;
+        int numSegmentos = Math.min(SEGMENTOS, Integer.highestOneBit(capacidad));
+        segmentos = new Segmento[numSegmentos];
+        for (int i = 0; i < numSegmentos; i++) {
+// el reparto de la capacidad suma exactamente 'capacidad'
+            segmentos[i] = new Segmento(capacidad / numSegmentos + (i < capacidad % numSegmentos ? 1 : 0));
+        }
+    }
+
+// compilacion de la entrada, de la cache o nueva
+    public ExpresionCompilada obtener(String entrada, boolean optimizar) {
+        String clave = optimizar ? " " + normalizar(entrada) : normalizar(entrada);
+        Segmento segmento = segmentos[TablaSimbolos.mezclar(clave.hashCode()) & (segmentos.length - 1)];
+        ExpresionCompilada compilada;
+        synchronized (segmento) {
+            compilada = segmento.get(clave);
+        }
+        if (compilada != null) {
+            aciertos.increment();
+            return compilada;
+        }
+
+        fallos.increment();
+        compilada = ExpresionCompilada.compilar(entrada, !soloArtefactos, optimizar);
+        synchronized (segmento) {
+            ExpresionCompilada anterior = segmento.putIfAbsent(clave, compilada);
+            return anterior != null ? anterior : compilada;
+        }
+    }
+
+// lexemas separados por un espacio (la clave normalizada nunca empieza con espacio)
+    static String normalizar(String entrada) {
+        AnalizadorLexicoCompleto lexer = NORMALIZADOR.get();
+        lexer.reiniciar();
+        CursorTokens cursor = lexer.cursor(entrada);
+        StringBuilder sb = new StringBuilder(entrada.length());
+        while (cursor.siguiente()) {
+            if (sb.length() > 0)
+                sb.append(' ');
+            sb.append(cursor.lexema());
+        }
+        return sb.toString();
+    }
+
+    public boolean soloArtefactos() {
+        return soloArtefactos;
+    }
+
+    public long getAciertos() {
+        return aciertos.sum();
+    }
+
+    public long getFallos() {
+        return fallos.sum();
+    }
+
+    public long getDesalojos() {
+        return desalojos.sum();
+    }
+
+    public int tamano() {
+        int total = 0;
+        for (Segmento s : segmentos) {
+            synchronized (s) {
+                total += s.size();
+            }
+        }
+        return total;
+    }
+
+    public void limpiar() {
+        for (Segmento s : segmentos) {
+            synchronized (s) {
+                s.clear();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        long total = getAciertos() + getFallos();
+        return String.format("%d entradas, %d aciertos, %d fallos (%.1f%% aciertos), %d desalojos", tamano(),
+                getAciertos(), getFallos(), total == 0 ? 0 : 100.0 * getAciertos() / total, getDesalojos());
+    }
+
+// varios hilos mandando formulas repetidas (con distintos espacios) con y sin cache
+    public static void main(String[] args) throws Exception {
+        int distintas = 200;
+        String[] formulas = new String[distintas * 2];
+        for (int i = 0; i < distintas; i++) {
+            formulas[2 * i] = "r" + i + " = (a + " + i + ") * (b - c / " + (i + 1) + ") + d * e;";
+            formulas[2 * i + 1] = "r" + i + "=(a+" + i + ")*(b-c/" + (i + 1) + ")+d*e;";
+        }
+
+        int hilos = Math.max(2, Runtime.getRuntime().availableProcessors());
+        int porHilo = 200_000;
+        CacheExpresiones cache = new CacheExpresiones(128, true);
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+        try {
+            for (int vuelta = 0; vuelta < 2; vuelta++) {
+                cache.limpiar();
+                long sinCache = medir(ejecutor, hilos, porHilo, formulas, null);
+                long conCache = medir(ejecutor, hilos, porHilo, formulas, cache);
+                if (vuelta > 0) {
+                    System.out.printf("%d hilos: sin caché %.0f expresiones/s, con caché %.0f expresiones/s%n", hilos,
+                            (double) hilos * porHilo * 1e9 / sinCache, (double) hilos * porHilo * 1e9 / conCache);
+                    System.out.println("caché (128 entradas, solo artefactos): " + cache);
+                }
+            }
+        } finally {
+            ejecutor.shutdown();
+        }
+    }
+
+// devuelve los nanosegundos; cada resultado se compara contra la compilacion sin cache
+    private static long medir(ExecutorService ejecutor, int hilos, int porHilo, String[] formulas,
+            CacheExpresiones cache) throws Exception {
+        List<Future<Integer>> tareas = new ArrayList<>();
+        long inicio = System.nanoTime();
+        for (int h = 0; h < hilos; h++) {
+            final int semilla = h;
+            tareas.add(ejecutor.submit(() -> {
+                int diferencias = 0;
+                for (int i = 0; i < porHilo; i++) {
+// la mayoria de las consultas cae en unas pocas formulas
+                    int k = (int) ((i * 31L + semilla * 7L) % (i % 8 == 0 ? formulas.length : 64));
+                    List<PasoPila> pasos = cache == null ? AnalizadorSintactico.procesarExpresion(formulas[k], false)
+                            : AnalizadorSintactico.procesarExpresion(formulas[k], false, false, cache);
+                    if (cache != null && i % 1000 == 0
+                            && !mismasInstrucciones(pasos, ExpresionCompilada.compilar(formulas[k], false, false).pasos)) {
+                        diferencias++;
+                    }
+                }
+                return diferencias;
+            }));
+        }
+        int diferencias = 0;
+        for (Future<Integer> t : tareas) {
+            diferencias += t.get();
+        }
+        long nanos = System.nanoTime() - inicio;
+        if (diferencias > 0) {
+            System.out.println("DIFERENCIAS con la compilación sin caché: " + diferencias);
+        }
+        return nanos;
+    }
+
+    private static boolean mismasInstrucciones(List<PasoPila> a, List<PasoPila> b) {
+        if (a.size() != b.size())
+            return false;
+        for (int i = 0; i < a.size(); i++) {
+            if (!a.get(i).instruccion.equals(b.get(i).instruccion))
+                return false;
+        }
+        return true;
+    }
+}
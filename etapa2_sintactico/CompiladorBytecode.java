@@ -0,0 +1,356 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// formula compilada a bytecode: variables indexadas por ranura
+interface FormulaCompilada {
+    double evaluar(double[] variables);
+}
+
+// formula compilada junto con el nombre de cada ranura
+class FormulaBytecode {
+    final FormulaCompilada funcion;
+    final String[] variables;
+
+    FormulaBytecode(FormulaCompilada funcion, String[] variables) {
+        this.funcion = funcion;
+        this.variables = variables;
+    }
+
+    int ranura(String variable) {
+        for (int i = 0; i < variables.length; i++) {
+            if (variables[i].equals(variable))
+                return i;
+        }
+        return -1;
+    }
+
+    double[] nuevasVariables() {
+        return new double[variables.length];
+    }
+
+    double evaluar(double[] variables) {
+        return funcion.evaluar(variables);
+    }
+}
+
+// compila el AST del Parser a una clase oculta (MethodHandles.Lookup.defineHiddenClass)
+// que implementa FormulaCompilada; el JIT la trata como cualquier otro metodo y puede
+// compilarla a codigo nativo e inlinearla en quien la llama
+//
+// el metodo generado no tiene saltos, asi que no necesita StackMapTable:
+//   expresion:   <expr> dreturn
+//   asignacion:  aload_1 <ranura> <expr> dup2_x2 dastore dreturn
+// donde <expr> es el recorrido post-orden (ldc2_w / aload_1 <ranura> daload / dadd ...)
+class CompiladorBytecode {
+    private static final int VERSION_CLASE = 61; // Java 17
+    private static final String NOMBRE_CLASE = "FormulaGenerada";
+
+    // opcodes usados
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_1 = 0x2b;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC_W = 0x13;
+    private static final int LDC2_W = 0x14;
+    private static final int DALOAD = 0x31;
+    private static final int DASTORE = 0x52;
+    private static final int DUP2_X2 = 0x5e;
+    private static final int DADD = 0x63;
+    private static final int DSUB = 0x67;
+    private static final int DMUL = 0x6b;
+    private static final int DDIV = 0x6f;
+    private static final int DRETURN = 0xaf;
+    private static final int RETURN = 0xb1;
+    private static final int INVOKESPECIAL = 0xb7;
+
+    // pool de constantes
+    private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+    private final DataOutputStream poolDatos = new DataOutputStream(pool);
+    private int entradasPool = 1;
+    private final Map<Object, Integer> indicePool = new HashMap<>();
+
+    // codigo del metodo evaluar
+    private final ByteArrayOutputStream codigo = new ByteArrayOutputStream();
+    private int pila;
+    private int pilaMaxima;
+
+    private final List<String> variables = new ArrayList<>();
+    private final Map<String, Integer> ranuras = new HashMap<>();
+
+    static FormulaBytecode compilar(NodeAsignacionOExpresion ast) {
+        CompiladorBytecode c = new CompiladorBytecode();
+        byte[] clase = c.generarClase(ast);
+        try {
+            MethodHandles.Lookup oculta = MethodHandles.lookup().defineHiddenClass(clase, true);
+            FormulaCompilada funcion = (FormulaCompilada) oculta
+                    .findConstructor(oculta.lookupClass(), MethodType.methodType(void.class))
+                    .invoke();
+            return new FormulaBytecode(funcion, c.variables.toArray(new String[0]));
+        } catch (Throwable e) {
+            throw new IllegalStateException("No se pudo definir la clase de la fórmula", e);
+        }
+    }
+
+    private byte[] generarClase(NodeAsignacionOExpresion ast) {
+        try {
+            // cuerpo de evaluar
+            if (ast.esAsignacion()) {
+                emitir(ALOAD_1, 1);
+                emitirEntero(ranura(ast.asignacion.variable.getValor()));
+                expresion(ast.asignacion.expresion);
+                emitir(DUP2_X2, 2);
+                emitir(DASTORE, -4);
+            } else {
+                expresion(ast.expresion);
+            }
+            emitir(DRETURN, -2);
+            if (codigo.size() > 65535) {
+                throw new IllegalArgumentException("Fórmula demasiado grande para un método JVM");
+            }
+
+            int esta = clase(NOMBRE_CLASE);
+            int superclase = clase("java/lang/Object");
+            int interfaz = clase("FormulaCompilada");
+            int constructorObjeto = metodo(superclase, "<init>", "()V");
+            int nombreInit = utf8("<init>");
+            int descInit = utf8("()V");
+            int nombreEvaluar = utf8("evaluar");
+            int descEvaluar = utf8("([D)D");
+            int atributoCode = utf8("Code");
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(VERSION_CLASE);
+            out.writeShort(entradasPool);
+            pool.writeTo(out);
+            out.writeShort(0x0010 | 0x0020); // ACC_FINAL | ACC_SUPER
+            out.writeShort(esta);
+            out.writeShort(superclase);
+            out.writeShort(1);
+            out.writeShort(interfaz);
+            out.writeShort(0); // campos
+            out.writeShort(2); // metodos
+
+            // public <init>() { super(); }
+            byte[] init = { (byte) ALOAD_0, (byte) INVOKESPECIAL, (byte) (constructorObjeto >> 8),
+                    (byte) constructorObjeto, (byte) RETURN };
+            escribirMetodo(out, nombreInit, descInit, atributoCode, 1, 1, init);
+
+            // public double evaluar(double[] variables)
+            escribirMetodo(out, nombreEvaluar, descEvaluar, atributoCode, pilaMaxima, 2, codigo.toByteArray());
+
+            out.writeShort(0); // atributos de la clase
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void escribirMetodo(DataOutputStream out, int nombre, int descriptor, int atributoCode,
+            int pilaMaxima, int locales, byte[] cuerpo) throws IOException {
+        out.writeShort(0x0001); // ACC_PUBLIC
+        out.writeShort(nombre);
+        out.writeShort(descriptor);
+        out.writeShort(1);
+        out.writeShort(atributoCode);
+        out.writeInt(12 + cuerpo.length);
+        out.writeShort(pilaMaxima);
+        out.writeShort(locales);
+        out.writeInt(cuerpo.length);
+        out.write(cuerpo);
+        out.writeShort(0); // tabla de excepciones
+        out.writeShort(0); // atributos del Code
+    }
+
+// recorrido post-orden del arbol
+    private void expresion(NodoAST nodo) throws IOException {
+        if (nodo instanceof NodoHoja) {
+            NodoHoja hoja = (NodoHoja) nodo;
+            if (hoja.tipo.equals("ERR")) {
+                throw new IllegalArgumentException("La fórmula tiene errores de sintaxis");
+            }
+            if (hoja.tipo.equals("num")) {
+                emitir(LDC2_W, 2);
+                escribirIndice(constanteDouble(Double.parseDouble(hoja.lexema)));
+            } else {
+                emitir(ALOAD_1, 1);
+                emitirEntero(ranura(hoja.lexema));
+                emitir(DALOAD, 0);
+            }
+            return;
+        }
+
+        NodoOperacion op = (NodoOperacion) nodo;
+        expresion(op.izquierdo);
+        expresion(op.derecho);
+        switch (op.codigo) {
+            case TipoToken.OPERA_SUMA:
+                emitir(DADD, -2);
+                break;
+            case TipoToken.OPERA_RESTA:
+                emitir(DSUB, -2);
+                break;
+            case TipoToken.OPERA_MULT:
+                emitir(DMUL, -2);
+                break;
+            case TipoToken.OPERA_DIVID:
+                emitir(DDIV, -2);
+                break;
+            default:
+                throw new IllegalArgumentException("Operador no soportado: " + op.operador);
+        }
+    }
+
+    // efecto: cambio en la pila de operandos medido en palabras (un double ocupa 2)
+    private void emitir(int opcode, int efecto) {
+        codigo.write(opcode);
+        pila += efecto;
+        pilaMaxima = Math.max(pilaMaxima, pila);
+    }
+
+    private void emitirEntero(int valor) throws IOException {
+        if (valor < 128) {
+            emitir(BIPUSH, 1);
+            codigo.write(valor);
+        } else if (valor < 32768) {
+            emitir(SIPUSH, 1);
+            codigo.write(valor >> 8);
+            codigo.write(valor);
+        } else {
+            emitir(LDC_W, 1);
+            escribirIndice(constanteEntera(valor));
+        }
+    }
+
+    private void escribirIndice(int indice) {
+        codigo.write(indice >> 8);
+        codigo.write(indice);
+    }
+
+    private int ranura(String variable) {
+        return ranuras.computeIfAbsent(variable, v -> {
+            variables.add(v);
+            return variables.size() - 1;
+        });
+    }
+
+    // Entradas del pool de constantes (se reutilizan si ya existen)
+
+    private int utf8(String texto) throws IOException {
+        Integer indice = indicePool.get(texto);
+        if (indice != null)
+            return indice;
+        poolDatos.writeByte(1);
+        poolDatos.writeUTF(texto);
+        return registrar(texto, 1);
+    }
+
+    private int clase(String nombre) throws IOException {
+        String clave = "Class:" + nombre;
+        Integer indice = indicePool.get(clave);
+        if (indice != null)
+            return indice;
+        int nombreUtf8 = utf8(nombre);
+        poolDatos.writeByte(7);
+        poolDatos.writeShort(nombreUtf8);
+        return registrar(clave, 1);
+    }
+
+    private int metodo(int clase, String nombre, String descriptor) throws IOException {
+        int nombreUtf8 = utf8(nombre);
+        int descUtf8 = utf8(descriptor);
+        poolDatos.writeByte(12); // NameAndType
+        poolDatos.writeShort(nombreUtf8);
+        poolDatos.writeShort(descUtf8);
+        int nombreYTipo = entradasPool++;
+        poolDatos.writeByte(10); // Methodref
+        poolDatos.writeShort(clase);
+        poolDatos.writeShort(nombreYTipo);
+        return entradasPool++;
+    }
+
+    private int constanteDouble(double valor) throws IOException {
+        Integer indice = indicePool.get(valor);
+        if (indice != null)
+            return indice;
+        poolDatos.writeByte(6);
+        poolDatos.writeDouble(valor);
+        return registrar(valor, 2);
+    }
+
+    private int constanteEntera(int valor) throws IOException {
+        Integer indice = indicePool.get(valor);
+        if (indice != null)
+            return indice;
+        poolDatos.writeByte(3);
+        poolDatos.writeInt(valor);
+        return registrar(valor, 1);
+    }
+
+    // las constantes long/double ocupan dos entradas del pool
+    private int registrar(Object clave, int entradas) {
+        int indice = entradasPool;
+        entradasPool += entradas;
+        if (entradasPool > 65535) {
+            throw new IllegalArgumentException("Fórmula demasiado grande: pool de constantes lleno");
+        }
+        indicePool.put(clave, indice);
+        return indice;
+    }
+
+    public static void main(String[] args) {
+        String formula = args.length > 0 ? args[0] : "x + y / (a - b / c) * z + w;";
+        AnalizadorLexicoCompleto lexer = new AnalizadorLexicoCompleto();
+        NodeAsignacionOExpresion ast = new Parser(lexer.cursor(formula)).parseInstruccion();
+
+        FormulaBytecode compilada = compilar(ast);
+        ProgramaPila programa = EnsambladorPila.ensamblar(AnalizadorSintactico.procesarExpresion(formula, false));
+        MaquinaPila maquina = new MaquinaPila();
+
+        System.out.println("Fórmula: " + formula);
+        System.out.println("Variables: " + String.join(", ", compilada.variables));
+
+        // mismos valores por nombre en ambos arreglos; cada motor se mide en su propio ciclo
+        double[] variables = compilada.nuevasVariables();
+        double[] variablesPila = programa.nuevasVariables();
+        int[] ranuraPila = new int[variables.length];
+        for (int v = 0; v < variables.length; v++) {
+            ranuraPila[v] = programa.ranura(compilada.variables[v]);
+        }
+        int evaluaciones = 10_000_000;
+
+        double sumaBytecode = 0;
+        long inicio = System.nanoTime();
+        for (int i = 0; i < evaluaciones; i++) {
+            for (int v = 0; v < variables.length; v++) {
+                variables[v] = i + v + 1;
+            }
+            sumaBytecode += compilada.evaluar(variables);
+        }
+        long nanosBytecode = System.nanoTime() - inicio;
+
+        double sumaPila = 0;
+        inicio = System.nanoTime();
+        for (int i = 0; i < evaluaciones; i++) {
+            for (int v = 0; v < variables.length; v++) {
+                variablesPila[ranuraPila[v]] = i + v + 1;
+            }
+            sumaPila += maquina.ejecutar(programa, variablesPila);
+        }
+        long nanosPila = System.nanoTime() - inicio;
+
+        System.out.printf("bytecode:      suma = %.6e, %.0f evaluaciones/s%n", sumaBytecode,
+                evaluaciones * 1e9 / nanosBytecode);
+        System.out.printf("máquina pila:  suma = %.6e, %.0f evaluaciones/s%n", sumaPila,
+                evaluaciones * 1e9 / nanosPila);
+    }
+}
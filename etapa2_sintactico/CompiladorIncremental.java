@@ -0,0 +1,440 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// sentencia de primer nivel ya parseada y generada
+class SentenciaCompilada {
+// tokens consumidos y leidos (con la anticipacion) a partir de su primer token
+    final int consumidos;
+    final int leidos;
+// huella de los tokens leidos (tipo y texto); solo sirve para encontrar candidatas
+    final long huella;
+// los tokens leidos (null = EOF): una sentencia se reutiliza solo si son iguales uno a uno
+    final TokenCompleto[] tokens;
+// null para un ';' suelto o un '}' sin abrir
+    final NodoAST ast;
+// codigo de pila de cada sentencia simple que contiene (los bloques se aplanan)
+    final List<List<PasoPila>> codigo;
+// sentencias de control sin codigo de pila
+    final int omitidas;
+
+    SentenciaCompilada(int consumidos, int leidos, long huella, TokenCompleto[] tokens, NodoAST ast,
+            List<List<PasoPila>> codigo, int omitidas) {
+        this.consumidos = consumidos;
+        this.leidos = leidos;
+        this.huella = huella;
+        this.tokens = tokens;
+        this.ast = ast;
+        this.codigo = codigo;
+        this.omitidas = omitidas;
+    }
+
+    boolean mismosTokens(TokenCompleto[] otros) {
+        if (otros.length != tokens.length)
+            return false;
+        for (int k = 0; k < tokens.length; k++) {
+            TokenCompleto a = tokens[k];
+            TokenCompleto b = otros[k];
+            if (a == b)
+                continue;
+            if (a == null || b == null || a.codigo != b.codigo || !a.lexema.equals(b.lexema))
+                return false;
+        }
+        return true;
+    }
+
+    int instrucciones() {
+        int total = 0;
+        for (List<PasoPila> pasos : codigo) {
+            total += pasos.size();
+        }
+        return total;
+    }
+}
+
+// compilacion incremental de un programa que se edita (ver LexerIncremental): guarda
+// por cada sentencia de primer nivel su ast y su codigo de pila, y al recompilar solo
+// parsea y genera las sentencias que leyeron algun token cambiado
+// entre sentencias de primer nivel el parser no guarda estado, asi que lo que produce una
+// sentencia depende solo de los tokens que leyo (los suyos y los que miro por anticipacion):
+//   - las sentencias que terminan de leer antes del tramo cambiado se quedan como estan
+//   - se parsea desde la primera que pudo leer el tramo hasta que, pasado el tramo, una
+//     sentencia nueva termina donde empezaba una vieja; desde ahi se reutilizan todas
+// las sentencias parseadas se buscan por la huella de sus tokens: si ya habia una con
+// los mismos tokens (repetida en el programa o que se volvio a parsear sin cambios) se
+// reutiliza su codigo; la huella solo elige la candidata, los tokens se comparan siempre
+// las ediciones tienen que pasar por editar() para que se sepa que tramo cambio
+// los errores de sintaxis de una sentencia reutilizada no se vuelven a reportar
+class CompiladorIncremental {
+    private final LexerIncremental fuente;
+    private final Parser parser = new Parser();
+    private final GeneradorCodigoPila generador = new GeneradorCodigoPila(false);
+// pila de generar (bloques anidados)
+    private final List<NodoAST> pendientes = new ArrayList<>();
+
+    private final List<SentenciaCompilada> sentencias = new ArrayList<>();
+// primer token de cada sentencia
+    private int[] inicios = new int[64];
+    private final Map<Long, SentenciaCompilada> porHuella = new HashMap<>();
+// maximo de tokens que una sentencia miro despues de los que consumio
+    private int maximoAnticipados;
+
+// tramo de tokens cambiado desde la ultima compilacion [sucioDesde, sucioHasta) en la
+// numeracion actual, y cuantos tokens de mas hay ahora despues del tramo
+    private boolean pendiente;
+    private int sucioDesde;
+    private int sucioHasta;
+    private int corrimiento;
+
+    private long expresiones;
+    private long instrucciones;
+    private long omitidas;
+    private int parseadas;
+
+    public CompiladorIncremental(LexerIncremental fuente) {
+        this.fuente = fuente;
+        marcar(0, 0, fuente.getTokens().size());
+    }
+
+// edita la fuente y anota el tramo de tokens que cambio
+    public CambioTokens editar(int desplazamiento, int quitados, String insertado) {
+        CambioTokens cambio = fuente.editar(desplazamiento, quitados, insertado);
+        marcar(cambio.desde, cambio.quitados, cambio.insertados);
+        return cambio;
+    }
+
+// junta el cambio con lo pendiente; el tramo puede quedar mas grande que lo que
+// cambio de verdad, nunca mas chico
+    private void marcar(int desde, int quitados, int insertados) {
+        int diferencia = insertados - quitados;
+        if (!pendiente) {
+            pendiente = true;
+            sucioDesde = desde;
+            sucioHasta = desde + insertados;
+            corrimiento = diferencia;
+            return;
+        }
+        int hasta;
+        if (sucioHasta <= desde) {
+            hasta = sucioHasta;
+        } else if (sucioHasta >= desde + quitados) {
+            hasta = sucioHasta + diferencia;
+        } else {
+            hasta = desde + insertados;
+        }
+        sucioDesde = Math.min(sucioDesde, desde);
+        sucioHasta = Math.max(hasta, desde + insertados);
+        corrimiento += diferencia;
+    }
+
+// compila el texto actual de la fuente
+    public ResumenLote compilar() {
+        long inicio = System.nanoTime();
+        parseadas = 0;
+        if (pendiente) {
+            recompilarTramo();
+            pendiente = false;
+        }
+        ResumenLote resumen = new ResumenLote();
+        resumen.expresiones = expresiones;
+        resumen.instrucciones = instrucciones;
+        resumen.omitidas = omitidas;
+        resumen.nanos = System.nanoTime() - inicio;
+        return resumen;
+    }
+
+    private void recompilarTramo() {
+        List<TokenCompleto> tokens = fuente.getTokens();
+        int viejas = sentencias.size();
+
+// primera sentencia que pudo leer un token del tramo: las anteriores terminan de
+// consumir a mas tardar maximoAnticipados tokens antes de sucioDesde
+        int primera = primeraQueTerminaDespues(sucioDesde - maximoAnticipados);
+        int posicion = primera < viejas ? inicios[primera] : finDeSentencias();
+
+        List<SentenciaCompilada> nuevas = new ArrayList<>();
+        int[] nuevosInicios = new int[16];
+        int siguienteVieja = primera;
+        while (posicion < tokens.size()) {
+            if (posicion >= sucioHasta) {
+                int vieja = posicion - corrimiento;
+                while (siguienteVieja < viejas && inicios[siguienteVieja] < vieja) {
+                    siguienteVieja++;
+                }
+                if (siguienteVieja < viejas && inicios[siguienteVieja] == vieja)
+                    break;
+            }
+            SentenciaCompilada sentencia = parsear(tokens, posicion);
+            if (nuevas.size() == nuevosInicios.length) {
+                nuevosInicios = Arrays.copyOf(nuevosInicios, nuevas.size() * 2);
+            }
+            nuevosInicios[nuevas.size()] = posicion;
+            nuevas.add(sentencia);
+            posicion += sentencia.consumidos;
+            parseadas++;
+        }
+        int hasta = posicion < tokens.size() ? siguienteVieja : viejas;
+        reemplazar(primera, hasta, nuevas, nuevosInicios);
+    }
+
+// busqueda binaria: primera sentencia cuyo ultimo token consumido queda en 'limite' o despues
+    private int primeraQueTerminaDespues(int limite) {
+        int bajo = 0;
+        int alto = sentencias.size();
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (inicios[medio] + sentencias.get(medio).consumidos <= limite) {
+                bajo = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return bajo;
+    }
+
+    private int finDeSentencias() {
+        int n = sentencias.size();
+        return n == 0 ? 0 : inicios[n - 1] + sentencias.get(n - 1).consumidos;
+    }
+
+// cambia las sentencias [desde, hasta) por las nuevas y corre los inicios de la cola
+    private void reemplazar(int desde, int hasta, List<SentenciaCompilada> nuevas, int[] nuevosInicios) {
+        for (int k = desde; k < hasta; k++) {
+            SentenciaCompilada vieja = sentencias.get(k);
+            porHuella.remove(vieja.huella, vieja);
+            contar(vieja, -1);
+        }
+        for (SentenciaCompilada nueva : nuevas) {
+            porHuella.put(nueva.huella, nueva);
+            contar(nueva, 1);
+        }
+
+        int n = sentencias.size();
+        int m = nuevas.size();
+        int tamano = n - (hasta - desde) + m;
+        if (tamano > inicios.length) {
+            inicios = Arrays.copyOf(inicios, Math.max(tamano, inicios.length * 2));
+        }
+        System.arraycopy(inicios, hasta, inicios, desde + m, n - hasta);
+        if (corrimiento != 0) {
+            for (int k = desde + m; k < tamano; k++) {
+                inicios[k] += corrimiento;
+            }
+        }
+        System.arraycopy(nuevosInicios, 0, inicios, desde, m);
+        sentencias.subList(desde, hasta).clear();
+        sentencias.addAll(desde, nuevas);
+    }
+
+    private void contar(SentenciaCompilada sentencia, int signo) {
+        expresiones += signo * sentencia.codigo.size();
+        instrucciones += signo * sentencia.instrucciones();
+        omitidas += signo * sentencia.omitidas;
+    }
+
+    private SentenciaCompilada parsear(List<TokenCompleto> tokens, int posicion) {
+        parser.reiniciar(tokens.subList(posicion, tokens.size()));
+        NodoAST ast = parser.parseSentencia();
+        int consumidos = parser.tokensConsumidos();
+        int leidos = parser.tokensLeidos();
+        maximoAnticipados = Math.max(maximoAnticipados, leidos - consumidos);
+        TokenCompleto[] leidosTokens = new TokenCompleto[leidos];
+        for (int k = 0; k < leidos && posicion + k < tokens.size(); k++) {
+            leidosTokens[k] = tokens.get(posicion + k);
+        }
+        long huella = huella(leidosTokens);
+
+        SentenciaCompilada igual = porHuella.get(huella);
+        if (igual != null && igual.consumidos == consumidos && igual.mismosTokens(leidosTokens)) {
+            return new SentenciaCompilada(consumidos, leidos, huella, leidosTokens, ast, igual.codigo,
+                    igual.omitidas);
+        }
+        List<List<PasoPila>> codigo = new ArrayList<>();
+        int omitidas = generar(ast, codigo);
+        return new SentenciaCompilada(consumidos, leidos, huella, leidosTokens, ast, codigo, omitidas);
+    }
+
+// mismo recorrido que CompiladorLotes.compilarSentencia; devuelve las sentencias omitidas
+    private int generar(NodoAST sentencia, List<List<PasoPila>> codigo) {
+        int omitidas = 0;
+        pendientes.clear();
+        pendientes.add(sentencia);
+        while (!pendientes.isEmpty()) {
+            NodoAST s = pendientes.remove(pendientes.size() - 1);
+            if (s == null)
+                continue;
+            if (s instanceof NodoBloque) {
+                List<NodoAST> internas = ((NodoBloque) s).sentencias;
+                for (int i = internas.size() - 1; i >= 0; i--) {
+                    pendientes.add(internas.get(i));
+                }
+                continue;
+            }
+            if (s instanceof NodoSi || s instanceof NodoMientras || s instanceof NodoPara) {
+                omitidas++;
+                continue;
+            }
+            generador.generarCodigo(s);
+            codigo.add(new ArrayList<>(generador.getPasos()));
+        }
+        return omitidas;
+    }
+
+// FNV-1a de 64 bits sobre tipo y caracteres de cada token (null = EOF, igual que lo ve
+// el parser); el largo del texto separa un token del siguiente
+    private static long huella(TokenCompleto[] tokens) {
+        long h = 0xcbf29ce484222325L;
+        for (TokenCompleto t : tokens) {
+            int codigo = t == null ? TipoToken.EOF : t.codigo;
+            String texto = t == null ? "" : t.lexema;
+            h = (h ^ codigo) * 0x100000001b3L;
+            h = (h ^ texto.length()) * 0x100000001b3L;
+            for (int i = 0; i < texto.length(); i++) {
+                h = (h ^ texto.charAt(i)) * 0x100000001b3L;
+            }
+        }
+        return h;
+    }
+
+    public List<SentenciaCompilada> getSentencias() {
+        return Collections.unmodifiableList(sentencias);
+    }
+
+// sentencias de primer nivel parseadas en la ultima compilacion (el resto se reutilizo)
+    public int getParseadas() {
+        return parseadas;
+    }
+
+
+// ediciones al azar sobre un programa contra Parser.parsePrograma + GeneradorCodigoPila
+// del texto completo, y tiempo de recompilar tras cambiar una sentencia
+    public static void main(String[] args) {
+        Random azar = new Random(11);
+        PrintStream errores = System.err;
+        System.setErr(new PrintStream(OutputStream.nullOutputStream()));
+// "Aa" y "BB" tienen el mismo String.hashCode: dos sentencias que solo difieren en eso
+// no pueden compartir codigo
+        String[] piezas = { "a", "b", "1", "2", "+", "*", "=", ";", " ", "(", ")", "{", "}", "if ", " then ",
+                " else ", "while ", " do ", "<", "x = y + 2;", " Aa = 1;", " BB = 1;" };
+
+        int ediciones = 0;
+        int diferencias = 0;
+        for (int prueba = 0; prueba < 300; prueba++) {
+            LexerIncremental texto = new AnalizadorLexicoCompleto().escanearIncremental(programa(azar, 30));
+            CompiladorIncremental compilador = new CompiladorIncremental(texto);
+            for (int e = 0; e < 20; e++) {
+                int largo = texto.texto().length();
+                int desde = azar.nextInt(largo + 1);
+                int quitados = azar.nextInt(Math.min(4, largo - desde) + 1);
+                compilador.editar(desde, quitados, azar.nextBoolean() ? "" : piezas[azar.nextInt(piezas.length)]);
+                ediciones++;
+// a veces se juntan varias ediciones antes de recompilar
+                if (azar.nextInt(3) == 0)
+                    continue;
+                compilador.compilar();
+                if (!instrucciones(compilador).equals(compilacionCompleta(texto.texto().toString()))
+                        && diferencias++ < 5) {
+                    errores.println("DIFERENCIA: " + texto.texto());
+                }
+            }
+        }
+        System.setErr(errores);
+        System.out.printf("%d ediciones al azar, %d diferencias con la compilación completa%n", ediciones,
+                diferencias);
+
+        String grande = programa(new Random(5), 100_000);
+        LexerIncremental texto = new AnalizadorLexicoCompleto().escanearIncremental(grande);
+        CompiladorIncremental compilador = new CompiladorIncremental(texto);
+        compilador.compilar();
+        CompiladorLotes lotes = new CompiladorLotes(new PrintWriter(Writer.nullWriter()), FormatoSalida.NINGUNA);
+        int repeticiones = 200;
+        for (int vuelta = 0; vuelta < 2; vuelta++) {
+            long inicio = System.nanoTime();
+            for (int i = 0; i < repeticiones / 20; i++) {
+                lotes.compilarPrograma(grande);
+            }
+            long porCompleta = (System.nanoTime() - inicio) / (repeticiones / 20);
+
+            inicio = System.nanoTime();
+            for (int i = 0; i < repeticiones; i++) {
+// se cambia un '+' de una sentencia cualquiera (el texto no cambia de largo)
+                int posicion = grande.indexOf('+', (int) ((long) i * 7919 % grande.length()));
+                compilador.editar(Math.max(posicion, 0), 1, i % 2 == 0 ? "-" : "*");
+                compilador.compilar();
+            }
+            long porEdicion = (System.nanoTime() - inicio) / repeticiones;
+
+            if (vuelta > 0) {
+                System.out.printf("%d sentencias: compilación completa %.1f ms, editar y recompilar %.1f ms "
+                        + "(%d parseadas)%n", compilador.getSentencias().size(), porCompleta / 1e6, porEdicion / 1e6,
+                        compilador.getParseadas());
+            }
+        }
+    }
+
+    private static String programa(Random azar, int sentencias) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < sentencias; i++) {
+            String v = "v" + azar.nextInt(50);
+            String w = "v" + azar.nextInt(50);
+            switch (azar.nextInt(4)) {
+                case 0:
+                    sb.append("if (").append(v).append(" > 2) then { ").append(w).append(" = ").append(w)
+                            .append(" + 1; } else { ").append(v).append(" = 0; }\n");
+                    break;
+                case 1:
+                    sb.append("while (").append(v).append(" < 10) do ").append(v).append(" = ").append(v)
+                            .append(" + 1;\n");
+                    break;
+                default:
+                    sb.append(v).append(" = ").append(w).append(" + ").append(azar.nextInt(100)).append(" * (")
+                            .append(v).append(" - 3);\n");
+            }
+        }
+        return sb.toString();
+    }
+
+    private static List<String> instrucciones(CompiladorIncremental compilador) {
+        List<String> resultado = new ArrayList<>();
+        for (SentenciaCompilada s : compilador.getSentencias()) {
+            for (List<PasoPila> pasos : s.codigo) {
+                for (PasoPila p : pasos) {
+                    resultado.add(p.instruccion);
+                }
+                resultado.add("");
+            }
+        }
+        return resultado;
+    }
+
+    private static List<String> compilacionCompleta(String texto) {
+        Parser parser = new Parser(new AnalizadorLexicoCompleto().cursor(texto));
+        GeneradorCodigoPila generador = new GeneradorCodigoPila(false);
+        List<NodoAST> pendientes = new ArrayList<>(parser.parsePrograma());
+        Collections.reverse(pendientes);
+        List<String> resultado = new ArrayList<>();
+        while (!pendientes.isEmpty()) {
+            NodoAST s = pendientes.remove(pendientes.size() - 1);
+            if (s instanceof NodoBloque) {
+                List<NodoAST> internas = new ArrayList<>(((NodoBloque) s).sentencias);
+                Collections.reverse(internas);
+                pendientes.addAll(internas);
+            } else if (!(s instanceof NodoSi || s instanceof NodoMientras || s instanceof NodoPara)) {
+                generador.generarCodigo(s);
+                for (PasoPila p : generador.getPasos()) {
+                    resultado.add(p.instruccion);
+                }
+                resultado.add("");
+            }
+        }
+        return resultado;
+    }
+}
@@ -0,0 +1,199 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+// como se escribe el codigo de pila de cada expresion
+enum FormatoSalida {
+    INSTRUCCIONES, // una instruccion por linea y una linea en blanco entre expresiones
+    LINEA,         // expresion => instrucciones separadas por "; "
+    NINGUNA        // no escribe nada (para medir rendimiento)
+}
+
+// totales de una corrida por lotes
+class ResumenLote {
+    long expresiones;
+    long instrucciones;
+// sentencias de control (if, while, for) sin codigo de pila
+    long omitidas;
+    long nanos;
+
+    double expresionesPorSegundo() {
+        return nanos == 0 ? 0 : expresiones * 1e9 / nanos;
+    }
+
+    @Override
+    public String toString() {
+        String texto = String.format("%d expresiones, %d instrucciones en %.3f s (%.0f expresiones/s)",
+                expresiones, instrucciones, nanos / 1e9, expresionesPorSegundo());
+        return omitidas == 0 ? texto : texto + ", " + omitidas + " sentencias de control omitidas";
+    }
+}
+
+// compilador por lotes: una expresion por linea
+// a diferencia de procesarExpresion, reutiliza el mismo lexer, parser y generador
+// para todas las expresiones y el generador trabaja sin diagnostico
+class CompiladorLotes {
+    private final AnalizadorLexicoCompleto lexer = new AnalizadorLexicoCompleto();
+    private final Parser parser = new Parser();
+    private final GeneradorCodigoPila generador = new GeneradorCodigoPila(false);
+// pila de compilarSentencia (bloques anidados)
+    private final List<NodoAST> pendientes = new ArrayList<>();
+    private final PrintWriter salida;
+    private final FormatoSalida formato;
+
+    public CompiladorLotes(PrintWriter salida, FormatoSalida formato) {
+        this.salida = salida;
+        this.formato = formato;
+    }
+
+    public ResumenLote compilar(Stream<String> expresiones) {
+        ResumenLote resumen = new ResumenLote();
+        long inicio = System.nanoTime();
+        expresiones.forEach(e -> compilarUna(e, resumen));
+        salida.flush();
+        resumen.nanos = System.nanoTime() - inicio;
+        return resumen;
+    }
+
+    public ResumenLote compilar(BufferedReader lector) {
+        return compilar(lector.lines());
+    }
+
+    public ResumenLote compilarArchivo(Path archivo) throws IOException {
+        try (BufferedReader lector = Files.newBufferedReader(archivo, StandardCharsets.UTF_8)) {
+            return compilar(lector);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+// programa completo (sentencias con ';', bloques, if/while/for): se escanea y se parsea
+// en una sola pasada en vez de una tuberia por linea
+    public ResumenLote compilarPrograma(CharSequence programa) {
+        lexer.reiniciar();
+        return compilarSentencias(lexer.cursor(programa));
+    }
+
+    public ResumenLote compilarProgramaArchivo(Path archivo) throws IOException {
+        lexer.reiniciar();
+        return compilarSentencias(lexer.cursorArchivo(archivo));
+    }
+
+    private ResumenLote compilarSentencias(CursorTokens cursor) {
+        ResumenLote resumen = new ResumenLote();
+        long inicio = System.nanoTime();
+        parser.reiniciar(cursor);
+        while (!parser.finEntrada()) {
+            NodoAST sentencia = parser.parseSentencia();
+            if (sentencia != null) {
+                compilarSentencia(sentencia, resumen);
+            }
+        }
+        salida.flush();
+        resumen.nanos = System.nanoTime() - inicio;
+        return resumen;
+    }
+
+// el generador de pila no tiene saltos: las sentencias de control solo se cuentan
+// los bloques anidados se recorren con pila explicita (sus sentencias se apilan al reves)
+    private void compilarSentencia(NodoAST sentencia, ResumenLote resumen) {
+        pendientes.clear();
+        pendientes.add(sentencia);
+        while (!pendientes.isEmpty()) {
+            NodoAST s = pendientes.remove(pendientes.size() - 1);
+            if (s instanceof NodoBloque) {
+                List<NodoAST> internas = ((NodoBloque) s).sentencias;
+                for (int i = internas.size() - 1; i >= 0; i--) {
+                    pendientes.add(internas.get(i));
+                }
+                continue;
+            }
+            if (s instanceof NodoSi || s instanceof NodoMientras || s instanceof NodoPara) {
+                resumen.omitidas++;
+                continue;
+            }
+
+            generador.generarCodigo(s);
+            List<PasoPila> pasos = generador.getPasos();
+            resumen.expresiones++;
+            resumen.instrucciones += pasos.size();
+            escribir("sentencia " + resumen.expresiones, pasos);
+        }
+    }
+
+    private void compilarUna(String expresion, ResumenLote resumen) {
+        if (expresion.isBlank())
+            return;
+
+// la tabla de simbolos vuelve a tener solo palabras reservadas
+        lexer.reiniciar();
+        parser.reiniciar(lexer.cursor(expresion));
+        NodeAsignacionOExpresion ast = parser.parseInstruccion();
+        generador.generarCodigo(ast.esAsignacion() ? ast.asignacion : ast.expresion);
+
+        List<PasoPila> pasos = generador.getPasos();
+        resumen.expresiones++;
+        resumen.instrucciones += pasos.size();
+        escribir(expresion, pasos);
+    }
+
+    private void escribir(String expresion, List<PasoPila> pasos) {
+        switch (formato) {
+            case INSTRUCCIONES:
+                for (PasoPila p : pasos) {
+                    salida.println(p.instruccion);
+                }
+                salida.println();
+                break;
+            case LINEA:
+                salida.print(expresion.strip());
+                salida.print(" => ");
+                for (int i = 0; i < pasos.size(); i++) {
+                    if (i > 0)
+                        salida.print("; ");
+                    salida.print(pasos.get(i).instruccion);
+                }
+                salida.println();
+                break;
+            case NINGUNA:
+                break;
+        }
+    }
+
+// uso: java CompiladorLotes <expresiones.txt> [INSTRUCCIONES|LINEA|NINGUNA]
+//      java CompiladorLotes --programa <programa.txt> [INSTRUCCIONES|LINEA|NINGUNA]
+// sin argumentos compila un lote sintetico solo para medir rendimiento
+    public static void main(String[] args) throws IOException {
+        PrintWriter salida = new PrintWriter(new BufferedWriter(
+                new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16), false);
+
+        ResumenLote resumen;
+        if (args.length > 1 && args[0].equals("--programa")) {
+            FormatoSalida formato = args.length > 2 ? FormatoSalida.valueOf(args[2]) : FormatoSalida.LINEA;
+            resumen = new CompiladorLotes(salida, formato).compilarProgramaArchivo(Path.of(args[1]));
+        } else if (args.length > 0) {
+            FormatoSalida formato = args.length > 1 ? FormatoSalida.valueOf(args[1]) : FormatoSalida.LINEA;
+            resumen = new CompiladorLotes(salida, formato).compilarArchivo(Path.of(args[0]));
+        } else {
+            String[] ejemplos = {
+                    "x + y / (a - b / c) * z + w;",
+                    "a / b + (c * d) - e * f;",
+                    "area = base * altura / 2;",
+                    "resultado = (10 + 20) * (30 - 5) / 10;"
+            };
+            CompiladorLotes compilador = new CompiladorLotes(salida, FormatoSalida.NINGUNA);
+            resumen = compilador.compilar(Stream.iterate(0, i -> i + 1).limit(1_000_000)
+                    .map(i -> ejemplos[i % ejemplos.length]));
+        }
+        System.err.println(resumen);
+    }
+}
@@ -0,0 +1,410 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+// vista de solo lectura sobre un rango de la entrada (no copia caracteres)
+// es reutilizable: solo es valida hasta el siguiente avance del cursor
+class VistaLexema implements CharSequence {
+    private CharSequence fuente;
+    private int inicio;
+    private int fin;
+
+    void apuntar(CharSequence fuente, int inicio, int fin) {
+        this.fuente = fuente;
+        this.inicio = inicio;
+        this.fin = fin;
+    }
+
+    @Override
+    public int length() {
+        return fin - inicio;
+    }
+
+    @Override
+    public char charAt(int indice) {
+        return fuente.charAt(inicio + indice);
+    }
+
+    @Override
+    public CharSequence subSequence(int desde, int hasta) {
+        return fuente.subSequence(inicio + desde, inicio + hasta);
+    }
+
+    @Override
+    public String toString() {
+        return fuente.subSequence(inicio, fin).toString();
+    }
+}
+
+// cursor de tokens tipo "pull": escanea un token por llamada a siguiente()
+// no construye la lista completa ni copia lexemas que ya estan en la tabla
+class CursorTokens {
+    // tipos de los operadores y delimitadores de un caracter (ASCII), 0 = ninguno
+    static final int[] SIMPLES = new int[128];
+    static {
+        for (java.util.Map.Entry<Character, String> e : AnalizadorLexicoCompleto.OPERADORES_SIMPLES.entrySet()) {
+            SIMPLES[e.getKey()] = TipoToken.codigo(e.getValue());
+        }
+    }
+
+    // texto fijo de cada operador y delimitador por tipo (null en los demas); el token
+    // lo toma de aqui sin pasar por el pool de la tabla, que en una tabla compartida
+    // cuesta un candado por token
+    // "!" y "not" comparten tipo: la palabra reservada lleva su propio texto (palabra)
+    static final String[] FIJOS = new String[TipoToken.total()];
+    static {
+        for (int c = 0; c < SIMPLES.length; c++) {
+            if (SIMPLES[c] != 0)
+                FIJOS[SIMPLES[c]] = String.valueOf((char) c);
+        }
+        FIJOS[TipoToken.OPERA_MENOR_IGUAL] = "<=";
+        FIJOS[TipoToken.OPERA_MAYOR_IGUAL] = ">=";
+        FIJOS[TipoToken.OPERA_DIFERENTE] = "!=";
+        FIJOS[TipoToken.OPERA_IGUALDAD] = "==";
+        FIJOS[TipoToken.OPERA_MENOR] = "<";
+        FIJOS[TipoToken.OPERA_MAYOR] = ">";
+        FIJOS[TipoToken.ASIGNA] = "=";
+        FIJOS[TipoToken.OPERA_NOT] = "!";
+    }
+
+    final CharSequence entrada;
+    final int limite;
+    final TablaSimbolos tabla;
+    private final VistaLexema vista = new VistaLexema();
+
+    private int posicion;
+    // lo fija reconocer(); las subclases pueden cambiar el motor de reconocimiento
+    int tipo;
+    private int inicio;
+    private int fin;
+    private SimboloCompleto simbolo;
+    // texto canonico de la palabra reservada actual (null si no es palabra reservada)
+    private String palabra;
+
+    public CursorTokens(CharSequence entrada, TablaSimbolos tabla) {
+        this(entrada, 0, entrada.length(), tabla);
+    }
+
+    public CursorTokens(CharSequence entrada, int desde, int hasta, TablaSimbolos tabla) {
+        this.entrada = entrada;
+        this.posicion = desde;
+        this.limite = hasta;
+        this.tabla = tabla;
+    }
+
+    public int tipo() {
+        return tipo;
+    }
+
+    public int inicio() {
+        return inicio;
+    }
+
+    public int fin() {
+        return fin;
+    }
+
+    // lexema actual como vista sobre la entrada
+    public CharSequence lexema() {
+        vista.apuntar(entrada, inicio, fin);
+        return vista;
+    }
+
+    // simbolo de la tabla para ID, NUM, NUM_FLOAT y CADENA (null en otro caso)
+    public SimboloCompleto simbolo() {
+        return simbolo;
+    }
+
+    // materializa el token actual; reutiliza el nombre de la tabla, el texto de la palabra
+    // reservada o el texto fijo del operador
+    public TokenCompleto token() {
+        String texto;
+        if (simbolo != null) {
+            texto = simbolo.nombre;
+        } else if (palabra != null) {
+            texto = palabra;
+        } else if (FIJOS[tipo] != null) {
+            texto = FIJOS[tipo];
+        } else {
+            texto = texto(inicio, fin);
+        }
+        return new TokenCompleto(tipo, texto);
+    }
+
+    // avanza al siguiente token; false al llegar al final de la entrada
+    public boolean siguiente() {
+        int i = posicion;
+        simbolo = null;
+        palabra = null;
+
+        while (i < limite) {
+            int espacio = espacio(i);
+            if (espacio > 0) {
+                i += espacio;
+                continue;
+            }
+
+            inicio = i;
+            int finToken = reconocer(i);
+            if (finToken < 0) {
+                errorLexico(i);
+                i += anchoCaracter(i);
+                continue;
+            }
+
+            if (tipo == TipoToken.ID) {
+                // palabra reservada o ID se decide sobre los caracteres, sin crear el String
+                tipo = ReconocedorPalabras.reconocer(entrada, inicio, finToken);
+                if (tipo == TipoToken.ID) {
+                    SimboloCompleto s = buscarEnTabla(inicio, finToken);
+                    if (s == null) {
+                        s = tabla.insertar(texto(inicio, finToken), TipoToken.ID, "-");
+                    }
+                    simbolo = s;
+                } else {
+                    palabra = ReconocedorPalabras.texto(tipo);
+                }
+            } else if (tipo == TipoToken.NUM || tipo == TipoToken.NUM_FLOAT || tipo == TipoToken.CADENA) {
+                simbolo = registrarLiteral(inicio, finToken, tipo);
+            }
+            return terminar(finToken);
+        }
+
+        posicion = limite;
+        tipo = TipoToken.EOF;
+        inicio = fin = limite;
+        return false;
+    }
+
+    // reconoce el token que empieza en i (no es espacio): deja su tipo en 'tipo'
+    // y devuelve la posicion donde termina, o -1 si el caracter no es valido
+    // los identificadores se reportan como ID; siguiente() distingue las palabras reservadas
+    int reconocer(int i) {
+        final CharSequence entrada = this.entrada;
+        char c = entrada.charAt(i);
+
+        // Identificadores y palabras reservadas
+        if (Character.isLetter(c) || c == '_' || c == '$') {
+            while (i < limite && (Character.isLetterOrDigit(entrada.charAt(i))
+                    || entrada.charAt(i) == '_' || entrada.charAt(i) == '$')) {
+                i++;
+            }
+            tipo = TipoToken.ID;
+            return i;
+        }
+
+        // Números enteros y decimales
+        if (Character.isDigit(c)) {
+            boolean esDecimal = false;
+            while (i < limite && (Character.isDigit(entrada.charAt(i)) || entrada.charAt(i) == '.')) {
+                if (entrada.charAt(i) == '.') {
+                    if (esDecimal)
+                        break;
+                    esDecimal = true;
+                }
+                i++;
+            }
+            tipo = esDecimal ? TipoToken.NUM_FLOAT : TipoToken.NUM;
+            return i;
+        }
+
+        // Cadenas de texto
+        if (c == '"') {
+            i++;
+            while (i < limite && entrada.charAt(i) != '"') {
+                i++;
+            }
+            if (i < limite) {
+                i++;
+            }
+            tipo = TipoToken.CADENA;
+            return i;
+        }
+
+        // Operadores compuestos (2 caracteres): <=, >=, !=, ==
+        if (i + 1 < limite && entrada.charAt(i + 1) == '=') {
+            if (c == '<') {
+                tipo = TipoToken.OPERA_MENOR_IGUAL;
+                return i + 2;
+            }
+            if (c == '>') {
+                tipo = TipoToken.OPERA_MAYOR_IGUAL;
+                return i + 2;
+            }
+            if (c == '!') {
+                tipo = TipoToken.OPERA_DIFERENTE;
+                return i + 2;
+            }
+            if (c == '=') {
+                tipo = TipoToken.OPERA_IGUALDAD;
+                return i + 2;
+            }
+        }
+
+        // Operadores simples: < > = !
+        if (c == '<') {
+            tipo = TipoToken.OPERA_MENOR;
+            return i + 1;
+        }
+        if (c == '>') {
+            tipo = TipoToken.OPERA_MAYOR;
+            return i + 1;
+        }
+        if (c == '=') {
+            tipo = TipoToken.ASIGNA;
+            return i + 1;
+        }
+        if (c == '!') {
+            tipo = TipoToken.OPERA_NOT;
+            return i + 1;
+        }
+
+        // Operadores y delimitadores simples
+        if (c < SIMPLES.length && SIMPLES[c] != 0) {
+            tipo = SIMPLES[c];
+            return i + 1;
+        }
+
+        return -1;
+    }
+
+    private boolean terminar(int nuevaPosicion) {
+        fin = nuevaPosicion;
+        posicion = nuevaPosicion;
+        return true;
+    }
+
+    // NUM, NUM_FLOAT y CADENA se guardan con su propio texto como valor
+    private SimboloCompleto registrarLiteral(int desde, int hasta, int tipo) {
+        SimboloCompleto s = buscarEnTabla(desde, hasta);
+        if (s == null) {
+            String texto = texto(desde, hasta);
+            s = tabla.insertar(texto, tipo, texto);
+        }
+        return s;
+    }
+
+    // Puntos de extensión para fuentes que no son texto en memoria (ver CursorArchivoUtf8)
+
+    // ancho del espacio en blanco que empieza en i, o 0 si no hay espacio
+    int espacio(int i) {
+        return Character.isWhitespace(entrada.charAt(i)) ? 1 : 0;
+    }
+
+    // cuantas posiciones ocupa el caracter que empieza en i
+    int anchoCaracter(int i) {
+        return 1;
+    }
+
+    void errorLexico(int i) {
+        System.err.println("Error Léxico: Carácter no reconocido '" + entrada.charAt(i) + "' en posición " + i);
+    }
+
+    SimboloCompleto buscarEnTabla(int desde, int hasta) {
+        return tabla.buscar(entrada, desde, hasta);
+    }
+
+    // texto del rango tomado del pool de la tabla (solo se copia la primera vez que aparece)
+    String texto(int desde, int hasta) {
+        return tabla.interno(entrada, desde, hasta);
+    }
+}
+
+// fuente de tokens con anticipacion para el parser: ver(k) mira el k-esimo token
+// siguiente sin consumirlo y consumir() avanza uno
+// solo guarda los tokens ya mirados y todavia no consumidos (arreglo circular), asi que
+// trabaja sobre un cursor que no puede retroceder; al final devuelve EOF indefinidamente
+class TokensAnticipados {
+    private static final TokenCompleto FIN = new TokenCompleto(TipoToken.EOF, "");
+
+    private CursorTokens cursor;
+    private Iterator<TokenCompleto> lista;
+    private TokenCompleto[] anillo = new TokenCompleto[4];
+    private int primero;
+    private int cantidad;
+    // tokens consumidos y tokens leidos de la fuente (consumidos + mirados) desde reiniciar
+    private int consumidos;
+    private int leidos;
+
+    public TokensAnticipados(CursorTokens cursor) {
+        reiniciar(cursor);
+    }
+
+    public TokensAnticipados(List<TokenCompleto> tokens) {
+        reiniciar(tokens);
+    }
+
+    public void reiniciar(CursorTokens cursor) {
+        vaciar();
+        this.cursor = cursor;
+        this.lista = null;
+    }
+
+    public void reiniciar(List<TokenCompleto> tokens) {
+        vaciar();
+        this.cursor = null;
+        this.lista = tokens.iterator();
+    }
+
+    // k = 0 es el token actual
+    public TokenCompleto ver(int k) {
+        while (cantidad <= k) {
+            if (cantidad == anillo.length) {
+                crecer();
+            }
+            anillo[(primero + cantidad) & (anillo.length - 1)] = leer();
+            cantidad++;
+            leidos++;
+        }
+        return anillo[(primero + k) & (anillo.length - 1)];
+    }
+
+    public void consumir() {
+        if (cantidad == 0) {
+            ver(0);
+        }
+        anillo[primero] = null;
+        primero = (primero + 1) & (anillo.length - 1);
+        cantidad--;
+        consumidos++;
+    }
+
+    public int consumidos() {
+        return consumidos;
+    }
+
+    // incluye los que se miraron sin consumir (y los EOF del final)
+    public int leidos() {
+        return leidos;
+    }
+
+    private TokenCompleto leer() {
+        if (cursor != null) {
+            if (cursor.siguiente()) {
+                return cursor.token();
+            }
+            cursor = null;
+        } else if (lista != null && lista.hasNext()) {
+            return lista.next();
+        }
+        return FIN;
+    }
+
+    private void vaciar() {
+        Arrays.fill(anillo, null);
+        primero = 0;
+        cantidad = 0;
+        consumidos = 0;
+        leidos = 0;
+    }
+
+    // el tamano se mantiene en potencia de 2 para usar & como modulo
+    private void crecer() {
+        TokenCompleto[] nuevo = new TokenCompleto[anillo.length * 2];
+        for (int i = 0; i < cantidad; i++) {
+            nuevo[i] = anillo[(primero + i) & (anillo.length - 1)];
+        }
+        anillo = nuevo;
+        primero = 0;
+    }
+}
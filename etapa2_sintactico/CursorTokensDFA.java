@@ -0,0 +1,170 @@
+// motor lexico dirigido por tabla (generaliza la TABLA de las tareas 1, 2 y 3)
+// mismo lenguaje que CursorTokens, pero el reconocimiento es un solo ciclo:
+//   clase = CLASE_ASCII[c]   (o claseUnicode(c) fuera de ASCII)
+//   estado = TRANSICION[estado * NUM_CLASES + clase]
+// todos los estados distintos de S_INICIO son de aceptacion, asi que al atorarse
+// el automata el token termina ahi mismo (maximo bocado sin retroceso)
+class CursorTokensDFA extends CursorTokens {
+
+    // Categorías de caracteres (columnas de la tabla)
+    private static final int C_OTRO = 0; // espacios y caracteres no reconocidos
+    private static final int C_LETRA = 1; // letras, _ y $
+    private static final int C_DIGITO = 2;
+    private static final int C_PUNTO = 3;
+    private static final int C_COMILLA = 4;
+    private static final int C_MENOR = 5;
+    private static final int C_MAYOR = 6;
+    private static final int C_IGUAL = 7;
+    private static final int C_EXCLAMA = 8;
+    private static final int C_PRIMER_SIMPLE = 9; // una columna por operador simple
+
+    // Estados (filas de la tabla)
+    private static final int S_INICIO = 0;
+    private static final int S_ID = 1;
+    private static final int S_NUM = 2;
+    private static final int S_DECIMAL = 3;
+    private static final int S_CADENA = 4;
+    private static final int S_CADENA_FIN = 5;
+    private static final int S_MENOR = 6;
+    private static final int S_MENOR_IGUAL = 7;
+    private static final int S_MAYOR = 8;
+    private static final int S_MAYOR_IGUAL = 9;
+    private static final int S_IGUAL = 10;
+    private static final int S_IGUALDAD = 11;
+    private static final int S_NOT = 12;
+    private static final int S_DIFERENTE = 13;
+    private static final int S_PRIMER_SIMPLE = 14; // un estado final por operador simple
+
+    private static final int NUM_CLASES;
+    private static final int NUM_ESTADOS;
+
+    private static final byte[] CLASE_ASCII = new byte[128];
+    // -1 = sin transicion (el token termina)
+    private static final int[] TRANSICION;
+    // tipo de token que acepta cada estado
+    private static final int[] ACEPTA;
+
+    static {
+        int simples = 0;
+        for (int tipo : SIMPLES) {
+            if (tipo != 0)
+                simples++;
+        }
+        NUM_CLASES = C_PRIMER_SIMPLE + simples;
+        NUM_ESTADOS = S_PRIMER_SIMPLE + simples;
+        TRANSICION = new int[NUM_ESTADOS * NUM_CLASES];
+        ACEPTA = new int[NUM_ESTADOS];
+        java.util.Arrays.fill(TRANSICION, -1);
+
+        // Clase de cada caracter ASCII (mismos criterios que CursorTokens)
+        int columna = C_PRIMER_SIMPLE;
+        for (char c = 0; c < 128; c++) {
+            int clase = claseUnicode(c);
+            if (c == '_' || c == '$')
+                clase = C_LETRA;
+            else if (c == '.')
+                clase = C_PUNTO;
+            else if (c == '"')
+                clase = C_COMILLA;
+            else if (c == '<')
+                clase = C_MENOR;
+            else if (c == '>')
+                clase = C_MAYOR;
+            else if (c == '=')
+                clase = C_IGUAL;
+            else if (c == '!')
+                clase = C_EXCLAMA;
+            else if (SIMPLES[c] != 0) {
+                // cada operador simple tiene su columna y su estado final
+                int estado = S_PRIMER_SIMPLE + (columna - C_PRIMER_SIMPLE);
+                clase = columna++;
+                transicion(S_INICIO, clase, estado);
+                ACEPTA[estado] = SIMPLES[c];
+            }
+            CLASE_ASCII[c] = (byte) clase;
+        }
+
+        // Identificadores: (letra | _ | $) (letra | dígito | _ | $)*
+        transicion(S_INICIO, C_LETRA, S_ID);
+        transicion(S_ID, C_LETRA, S_ID);
+        transicion(S_ID, C_DIGITO, S_ID);
+        ACEPTA[S_ID] = TipoToken.ID;
+
+        // Números: dígito+ ( . dígito* )?
+        transicion(S_INICIO, C_DIGITO, S_NUM);
+        transicion(S_NUM, C_DIGITO, S_NUM);
+        transicion(S_NUM, C_PUNTO, S_DECIMAL);
+        transicion(S_DECIMAL, C_DIGITO, S_DECIMAL);
+        ACEPTA[S_NUM] = TipoToken.NUM;
+        ACEPTA[S_DECIMAL] = TipoToken.NUM_FLOAT;
+
+        // Cadenas: " cualquier-cosa-menos-comilla* "? (sin cerrar llega hasta el final)
+        transicion(S_INICIO, C_COMILLA, S_CADENA);
+        for (int clase = 0; clase < NUM_CLASES; clase++) {
+            transicion(S_CADENA, clase, clase == C_COMILLA ? S_CADENA_FIN : S_CADENA);
+        }
+        ACEPTA[S_CADENA] = TipoToken.CADENA;
+        ACEPTA[S_CADENA_FIN] = TipoToken.CADENA;
+
+        // Operadores de uno o dos caracteres: < <= > >= = == ! !=
+        transicion(S_INICIO, C_MENOR, S_MENOR);
+        transicion(S_MENOR, C_IGUAL, S_MENOR_IGUAL);
+        transicion(S_INICIO, C_MAYOR, S_MAYOR);
+        transicion(S_MAYOR, C_IGUAL, S_MAYOR_IGUAL);
+        transicion(S_INICIO, C_IGUAL, S_IGUAL);
+        transicion(S_IGUAL, C_IGUAL, S_IGUALDAD);
+        transicion(S_INICIO, C_EXCLAMA, S_NOT);
+        transicion(S_NOT, C_IGUAL, S_DIFERENTE);
+        ACEPTA[S_MENOR] = TipoToken.OPERA_MENOR;
+        ACEPTA[S_MENOR_IGUAL] = TipoToken.OPERA_MENOR_IGUAL;
+        ACEPTA[S_MAYOR] = TipoToken.OPERA_MAYOR;
+        ACEPTA[S_MAYOR_IGUAL] = TipoToken.OPERA_MAYOR_IGUAL;
+        ACEPTA[S_IGUAL] = TipoToken.ASIGNA;
+        ACEPTA[S_IGUALDAD] = TipoToken.OPERA_IGUALDAD;
+        ACEPTA[S_NOT] = TipoToken.OPERA_NOT;
+        ACEPTA[S_DIFERENTE] = TipoToken.OPERA_DIFERENTE;
+    }
+
+    private static void transicion(int estado, int clase, int destino) {
+        TRANSICION[estado * NUM_CLASES + clase] = destino;
+    }
+
+    // fuera de la tabla ASCII solo importan letras y dígitos
+    private static int claseUnicode(char c) {
+        if (Character.isLetter(c))
+            return C_LETRA;
+        if (Character.isDigit(c))
+            return C_DIGITO;
+        return C_OTRO;
+    }
+
+    public CursorTokensDFA(CharSequence entrada, TablaSimbolos tabla) {
+        super(entrada, tabla);
+    }
+
+    public CursorTokensDFA(CharSequence entrada, int desde, int hasta, TablaSimbolos tabla) {
+        super(entrada, desde, hasta, tabla);
+    }
+
+    @Override
+    int reconocer(int i) {
+        final CharSequence entrada = this.entrada;
+        final int limite = this.limite;
+        int estado = S_INICIO;
+
+        while (i < limite) {
+            char c = entrada.charAt(i);
+            int clase = c < 128 ? CLASE_ASCII[c] : claseUnicode(c);
+            int siguiente = TRANSICION[estado * NUM_CLASES + clase];
+            if (siguiente < 0)
+                break;
+            estado = siguiente;
+            i++;
+        }
+
+        if (estado == S_INICIO)
+            return -1;
+        tipo = ACEPTA[estado];
+        return i;
+    }
+}
@@ -0,0 +1,119 @@
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+// clave de una operacion ya canonizada: los hijos se comparan por identidad porque
+// la fabrica garantiza un solo objeto por subarbol
+class ClaveOperacion {
+    final int codigo;
+    final NodoAST izquierdo;
+    final NodoAST derecho;
+
+    ClaveOperacion(int codigo, NodoAST izquierdo, NodoAST derecho) {
+        this.codigo = codigo;
+        this.izquierdo = izquierdo;
+        this.derecho = derecho;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof ClaveOperacion))
+            return false;
+        ClaveOperacion c = (ClaveOperacion) o;
+        return codigo == c.codigo && izquierdo == c.izquierdo && derecho == c.derecho;
+    }
+
+    @Override
+    public int hashCode() {
+        return (codigo * 31 + System.identityHashCode(izquierdo)) * 31 + System.identityHashCode(derecho);
+    }
+}
+
+// fabrica de nodos con hash-consing: subarboles estructuralmente iguales son el mismo
+// objeto, asi que el ast pasa a ser un grafo aciclico y una subexpresion repetida se
+// reconoce comparando referencias (ver GeneradorCodigoPila con eliminarSubexpresiones)
+// los nodos compartidos no deben modificarse despues de creados
+class FabricaNodos {
+// hojas por tipo y lexema; los lexemas vienen del PoolLexemas del lexer, asi que se
+// comparan por identidad (un texto que no este internado solo pierde la reutilizacion)
+    private final Map<String, Map<String, NodoHoja>> hojas = new HashMap<>();
+    private int numHojas;
+    private final Map<ClaveOperacion, NodoOperacion> operaciones = new HashMap<>();
+    private int reutilizados;
+
+    public NodoHoja hoja(String tipo, String lexema) {
+        Map<String, NodoHoja> delTipo = hojas.computeIfAbsent(tipo, t -> new IdentityHashMap<>());
+        NodoHoja nodo = delTipo.get(lexema);
+        if (nodo != null) {
+            reutilizados++;
+            return nodo;
+        }
+        nodo = new NodoHoja(tipo, lexema);
+        delTipo.put(lexema, nodo);
+        numHojas++;
+        return nodo;
+    }
+
+    public NodoOperacion operacion(String tipoNodo, int codigo, String operador, NodoAST izquierdo, NodoAST derecho) {
+        ClaveOperacion clave = new ClaveOperacion(codigo, izquierdo, derecho);
+        NodoOperacion nodo = operaciones.get(clave);
+        if (nodo != null) {
+            reutilizados++;
+            return nodo;
+        }
+        nodo = new NodoOperacion(tipoNodo, codigo, operador, izquierdo, derecho);
+        operaciones.put(clave, nodo);
+        return nodo;
+    }
+
+// nodos distintos creados
+    public int tamano() {
+        return numHojas + operaciones.size();
+    }
+
+// veces que se devolvio un nodo ya existente
+    public int getReutilizados() {
+        return reutilizados;
+    }
+
+    public void limpiar() {
+        hojas.clear();
+        numHojas = 0;
+        operaciones.clear();
+        reutilizados = 0;
+    }
+
+    public static void main(String[] args) {
+        String formula = args.length > 0 ? args[0]
+                : "r = (a - b / c) * (a - b / c) + x / (a - b / c) - (a - b / c) * (a - b / c);";
+
+        FabricaNodos fabrica = new FabricaNodos();
+        Parser parser = new Parser(new AnalizadorLexicoCompleto().cursor(formula));
+        parser.usarFabrica(fabrica);
+        NodeAsignacionOExpresion ast = parser.parseInstruccion();
+        NodoAST raiz = ast.esAsignacion() ? ast.asignacion : ast.expresion;
+
+        System.out.println("Fórmula: " + formula);
+        System.out.printf("Nodos distintos: %d (%d reutilizados)%n", fabrica.tamano(), fabrica.getReutilizados());
+
+        GeneradorCodigoPila sinCse = new GeneradorCodigoPila(false);
+        sinCse.generarCodigo(raiz);
+        GeneradorCodigoPila conCse = new GeneradorCodigoPila(true, true);
+        conCse.generarCodigo(raiz);
+        conCse.mostrarTablaCodigoIntermedio();
+
+        ProgramaPila programaSin = EnsambladorPila.ensamblar(sinCse.getPasos());
+        ProgramaPila programaCon = EnsambladorPila.ensamblar(conCse.getPasos());
+        double[] variablesSin = programaSin.nuevasVariables();
+        double[] variablesCon = programaCon.nuevasVariables();
+        for (int i = 0; i < programaSin.numVariables(); i++) {
+            variablesSin[i] = i + 2;
+            variablesCon[programaCon.ranura(programaSin.variables[i])] = i + 2;
+        }
+        MaquinaPila maquina = new MaquinaPila();
+        System.out.printf("Sin CSE: %d instrucciones, resultado %s%n", sinCse.getPasos().size(),
+                maquina.ejecutar(programaSin, variablesSin));
+        System.out.printf("Con CSE: %d instrucciones, resultado %s%n", conCse.getPasos().size(),
+                maquina.ejecutar(programaCon, variablesCon));
+    }
+}
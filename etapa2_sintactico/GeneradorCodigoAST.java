@@ -1,13 +1,16 @@
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
-// linea tabla codigo intermedio
+// linea tabla codigo intermedio (inmutable: se comparte entre hilos desde CacheExpresiones)
 class PasoPila {
-    int paso;
-    String instruccion;
-    String estadoPila;
-    String explicacion;
+    final int paso;
+    final String instruccion;
+    final String estadoPila;
+    final String explicacion;
 
     public PasoPila(int paso, String instruccion, String estadoPila, String explicacion) {
         this.paso = paso;
@@ -22,13 +25,101 @@ class PasoPila {
 }
 
 // generador de codigo intermedio
+// solo guarda la configuracion; el estado de cada generacion (pasos, contadores, pila
+// simulada) vive en un GeneracionPila
+// generar() crea su propio estado en cada llamada, asi que un mismo generador sirve a
+// varios hilos a la vez; generarCodigo + getPasos reutilizan siempre el mismo estado
+// (y sus listas), mas barato en un solo hilo pero no se puede compartir entre hilos
 class GeneradorCodigoPila {
+// false: solo instrucciones, sin estado de pila ni explicaciones
+    private final boolean diagnostico;
+// true: una operacion compartida (ast de FabricaNodos) se calcula una vez y se guarda
+// en un temporal (DUP + STORE); las siguientes apariciones hacen LOAD del temporal
+    private final boolean eliminarSubexpresiones;
+    private final GeneracionPila reutilizada;
+
+    public GeneradorCodigoPila() {
+        this(true);
+    }
+
+    public GeneradorCodigoPila(boolean diagnostico) {
+        this(diagnostico, false);
+    }
+
+    public GeneradorCodigoPila(boolean diagnostico, boolean eliminarSubexpresiones) {
+        this.diagnostico = diagnostico;
+        this.eliminarSubexpresiones = eliminarSubexpresiones;
+        reutilizada = new GeneracionPila(diagnostico, eliminarSubexpresiones);
+    }
+
+// reentrante: pasos de una generacion nueva
+    public List<PasoPila> generar(NodoAST raiz) {
+        GeneracionPila generacion = new GeneracionPila(diagnostico, eliminarSubexpresiones);
+        generacion.generarCodigo(raiz);
+        return generacion.getPasos();
+    }
+
+    public List<PasoPila> generar(ArbolPlano arbol, int raiz) {
+        GeneracionPila generacion = new GeneracionPila(diagnostico, eliminarSubexpresiones);
+        generacion.generarCodigo(arbol, raiz);
+        return generacion.getPasos();
+    }
+
+// iniciar codigo para ast (estado reutilizado, ver getPasos)
+    public void generarCodigo(NodoAST raiz) {
+        reutilizada.generarCodigo(raiz);
+    }
+
+// codigo para una instruccion de un ArbolPlano (raiz = indice devuelto por el Parser)
+    public void generarCodigo(ArbolPlano arbol, int raiz) {
+        reutilizada.generarCodigo(arbol, raiz);
+    }
+
+// pasos generados por la ultima llamada a generarCodigo
+    public List<PasoPila> getPasos() {
+        return reutilizada.getPasos();
+    }
+
+// imprimir tabla
+    public void mostrarTablaCodigoIntermedio() {
+        mostrarTablaCodigoIntermedio(getPasos());
+    }
+
+    static void mostrarTablaCodigoIntermedio(List<PasoPila> pasos) {
+        System.out.println("\n╔══════════════════════════════════════════════════════════════════════════════════════════════════╗");
+        System.out.println("║                        TABLA DE CÓDIGO INTERMEDIO (MÁQUINA DE PILA)                              ║");
+        System.out.println("╠══════╦══════════════╦══════════════════════╦═════════════════════════════════════════════════════╣");
+        System.out.println("║ Paso ║ Instrucción  ║ Pila (Stack)         ║ Explicación                                         ║");
+        System.out.println("╠══════╬══════════════╬══════════════════════╬═════════════════════════════════════════════════════╣");
+        
+        for (PasoPila p : pasos) {
+            System.out.printf("║ %-4d ║ %-12s ║ %-20s ║ %-51s ║\n", p.paso, p.instruccion, p.estadoPila, p.explicacion);
+        }
+        
+        System.out.println("╚══════╩══════════════╩══════════════════════╩═════════════════════════════════════════════════════╝");
+    }
+}
+
+// estado de una generacion de codigo de pila; cada llamada a generarCodigo lo reinicia
+class GeneracionPila {
     private List<PasoPila> pasos;
     private int contadorPasos;
     private int contadorTemporales;
     private List<String> pilaSimulada;
+// elementos en la pila (se lleva aunque no haya diagnostico)
+    private int profundidad;
+    private final boolean diagnostico;
+    private final boolean eliminarSubexpresiones;
+    private final Map<NodoAST, Integer> referencias = new IdentityHashMap<>();
+    private final Map<NodoAST, String> calculados = new IdentityHashMap<>();
+// pila explicita de los recorridos
+    private final List<NodoAST> pendientes = new ArrayList<>();
+    private final List<Boolean> visitados = new ArrayList<>();
+    private int[] pilaPlana = new int[16];
 
-    public GeneradorCodigoPila() {
+    GeneracionPila(boolean diagnostico, boolean eliminarSubexpresiones) {
+        this.diagnostico = diagnostico;
+        this.eliminarSubexpresiones = eliminarSubexpresiones;
         pasos = new ArrayList<>();
         contadorPasos = 1;
         contadorTemporales = 1;
@@ -52,89 +143,226 @@ class GeneradorCodigoPila {
         pasos.add(new PasoPila(contadorPasos++, instruccion, getEstadoPila(), explicacion));
     }
 
-// iniciar codigo para ast
-    public void generarCodigo(NodoAST raiz) {
+// agregar paso sin diagnostico
+    private void emitir(String instruccion) {
+        pasos.add(new PasoPila(contadorPasos++, instruccion, null, null));
+    }
+
+    void generarCodigo(NodoAST raiz) {
         pasos.clear();
         contadorPasos = 1;
         contadorTemporales = 1;
         pilaSimulada.clear();
+        profundidad = 0;
+        referencias.clear();
+        calculados.clear();
+        if (eliminarSubexpresiones) {
+            contarReferencias(raiz);
+        }
         
         recorridoPostOrden(raiz);
         
     }
 
-// generar codigo de pila
-    private void recorridoPostOrden(NodoAST nodo) {
-        if (nodo == null) return;
+// mismo recorrido post-orden, con una pila de int: ~nodo marca una operacion ya expandida
+    void generarCodigo(ArbolPlano arbol, int raiz) {
+        pasos.clear();
+        contadorPasos = 1;
+        contadorTemporales = 1;
+        pilaSimulada.clear();
+        profundidad = 0;
 
-// si es id o num
-        if (nodo instanceof NodoHoja) {
-            String valor = nodo.getValor();
-            pilaSimulada.add(valor); 
-            registrarPaso("PUSH " + valor, "Se mete el valor de " + valor);
-            return;
+        int expresion = arbol.clase(raiz) == ArbolPlano.ASIGNACION ? arbol.derecho(raiz) : raiz;
+        int n = 0;
+        pilaPlana[n++] = expresion;
+        while (n > 0) {
+            int nodo = pilaPlana[--n];
+            if (nodo < 0) {
+                nodo = ~nodo;
+                aplicarOperacion(arbol.codigo(nodo), arbol.lexema(nodo));
+                continue;
+            }
+            if (arbol.clase(nodo) != ArbolPlano.OPERACION) {
+                meterValor(arbol.lexema(nodo));
+                continue;
+            }
+            if (n + 3 > pilaPlana.length) {
+                pilaPlana = Arrays.copyOf(pilaPlana, pilaPlana.length * 2);
+            }
+            pilaPlana[n++] = ~nodo;
+            pilaPlana[n++] = arbol.derecho(nodo);
+            pilaPlana[n++] = arbol.izquierdo(nodo);
         }
 
-// operacion
-        if (nodo instanceof NodoOperacion) {
+        if (expresion != raiz) {
+            String variable = arbol.lexema(arbol.izquierdo(raiz));
+            if (profundidad > 0) profundidad--;
+            if (!diagnostico) {
+                emitir("POP " + variable);
+                return;
+            }
+            if (!pilaSimulada.isEmpty()) pilaSimulada.remove(pilaSimulada.size() - 1);
+            registrarPaso("POP " + variable, "Se saca el resultado y se asigna a " + variable);
+        }
+    }
+
+// cuantos padres tiene cada nodo (cada nodo compartido se recorre una sola vez)
+    private void contarReferencias(NodoAST raiz) {
+        pendientes.clear();
+        pendientes.add(raiz instanceof NodoAsignacion ? ((NodoAsignacion) raiz).expresion : raiz);
+        while (!pendientes.isEmpty()) {
+            NodoAST nodo = pendientes.remove(pendientes.size() - 1);
+            if (!(nodo instanceof NodoOperacion))
+                continue;
             NodoOperacion op = (NodoOperacion) nodo;
-            
-// hijo izquierdo
-            recorridoPostOrden(op.izquierdo);
-            
-// hijo derecho
-            recorridoPostOrden(op.derecho);
-            
-// aplicar operacion
-            aplicarOperacion(op.operador);
-            return;
+            if (referencias.merge(op.izquierdo, 1, Integer::sum) == 1)
+                pendientes.add(op.izquierdo);
+            if (referencias.merge(op.derecho, 1, Integer::sum) == 1)
+                pendientes.add(op.derecho);
         }
-        
+    }
+
+// generar codigo de pila
+    private void recorridoPostOrden(NodoAST nodo) {
+        if (nodo == null) return;
+
 // asignacion completa
         if (nodo instanceof NodoAsignacion) {
             NodoAsignacion asig = (NodoAsignacion) nodo;
             
 // expresion
-            recorridoPostOrden(asig.expresion);
+            recorrerExpresion(asig.expresion);
             
 // asiga resultado
             String variable = asig.variable.getValor();
+            if (profundidad > 0) profundidad--;
+            if (!diagnostico) {
+                emitir("POP " + variable);
+                return;
+            }
             String resultado = pilaSimulada.isEmpty() ? "error" : pilaSimulada.remove(pilaSimulada.size() - 1);
             
             registrarPaso("POP " + variable, "Se saca el resultado y se asigna a " + variable);
             return;
         }
+
+        recorrerExpresion(nodo);
+    }
+
+// post-orden con pila explicita (no depende de la profundidad del arbol): una operacion
+// se apila primero sin visitar (se expanden sus hijos) y luego visitada (se aplica)
+    private void recorrerExpresion(NodoAST raiz) {
+        pendientes.clear();
+        visitados.clear();
+        pendientes.add(raiz);
+        visitados.add(false);
+        while (!pendientes.isEmpty()) {
+            NodoAST nodo = pendientes.remove(pendientes.size() - 1);
+            boolean visitado = visitados.remove(visitados.size() - 1);
+
+// si es id o num
+            if (nodo instanceof NodoHoja) {
+                meterValor(nodo.getValor());
+                continue;
+            }
+            if (!(nodo instanceof NodoOperacion))
+                continue;
+
+// operacion
+            NodoOperacion op = (NodoOperacion) nodo;
+            if (visitado) {
+// aplicar operacion
+                aplicarOperacion(op.codigo, op.operador);
+                
+// se guarda una copia si la operacion se vuelve a usar
+                if (eliminarSubexpresiones && referencias.getOrDefault(op, 1) > 1) {
+                    guardarTemporal(op);
+                }
+                continue;
+            }
+
+// subexpresion ya calculada
+            String temporal = calculados.get(op);
+            if (temporal != null) {
+                cargarTemporal(temporal);
+                continue;
+            }
+
+// se apilan al reves: la operacion, el hijo derecho y arriba el izquierdo
+            pendientes.add(op);
+            visitados.add(true);
+            pendientes.add(op.derecho);
+            visitados.add(false);
+            pendientes.add(op.izquierdo);
+            visitados.add(false);
+        }
+    }
+
+    private void meterValor(String valor) {
+        profundidad++;
+        if (diagnostico) {
+            pilaSimulada.add(valor); 
+            registrarPaso("PUSH " + valor, "Se mete el valor de " + valor);
+        } else {
+            emitir("PUSH " + valor);
+        }
+    }
+
+// DUP + STORE: el resultado queda en la pila y una copia en el temporal
+    private void guardarTemporal(NodoAST nodo) {
+        String temporal = "#t" + (calculados.size() + 1);
+        calculados.put(nodo, temporal);
+        profundidad++;
+        if (!diagnostico) {
+            emitir("DUP");
+            emitir("STORE " + temporal);
+            profundidad--;
+            return;
+        }
+        String tope = pilaSimulada.get(pilaSimulada.size() - 1);
+        pilaSimulada.add(tope);
+        registrarPaso("DUP", "Se duplica " + tope + " porque se vuelve a usar");
+        pilaSimulada.remove(pilaSimulada.size() - 1);
+        profundidad--;
+        registrarPaso("STORE " + temporal, "Se saca la copia de " + tope + " y se guarda en " + temporal);
+    }
+
+// LOAD: se reutiliza una subexpresion ya calculada
+    private void cargarTemporal(String temporal) {
+        profundidad++;
+        if (!diagnostico) {
+            emitir("LOAD " + temporal);
+            return;
+        }
+        pilaSimulada.add(temporal);
+        registrarPaso("LOAD " + temporal, "Se mete la subexpresión ya calculada en " + temporal);
     }
 
 // sacar operandos y meter temporal
-    private void aplicarOperacion(String operador) {
-        if (pilaSimulada.size() < 2) {
+    private void aplicarOperacion(int codigo, String operador) {
+        if (profundidad < 2) {
             System.err.println("Error de semántica: Pila mal formada para operación " + operador);
             return;
         }
-
-// inverse
-        String op2 = pilaSimulada.remove(pilaSimulada.size() - 1);
-        String op1 = pilaSimulada.remove(pilaSimulada.size() - 1);
+        profundidad--;
         
         String instruccion = "";
         String accion = "";
-        String tResult = "t" + contadorTemporales++;
 
-        switch (operador) {
-            case "+":
+        switch (codigo) {
+            case TipoToken.OPERA_SUMA:
                 instruccion = "ADD";
                 accion = "suma y mete";
                 break;
-            case "-":
+            case TipoToken.OPERA_RESTA:
                 instruccion = "SUB";
                 accion = "resta y mete";
                 break;
-            case "*":
+            case TipoToken.OPERA_MULT:
                 instruccion = "MUL";
                 accion = "multiplica y mete";
                 break;
-            case "/":
+            case TipoToken.OPERA_DIVID:
                 instruccion = "DIV";
                 accion = "divide y mete";
                 break;
@@ -143,24 +371,23 @@ class GeneradorCodigoPila {
                 accion = "opera";
         }
 
+        if (!diagnostico) {
+            emitir(instruccion);
+            return;
+        }
+
+// inverse
+        String op2 = pilaSimulada.remove(pilaSimulada.size() - 1);
+        String op1 = pilaSimulada.remove(pilaSimulada.size() - 1);
+        String tResult = "t" + contadorTemporales++;
+
         pilaSimulada.add(tResult); 
         
         String explicacion = String.format("Se sacan %s y %s, se %s (%s)", op1, op2, accion, tResult);
         registrarPaso(instruccion, explicacion);
     }
     
-// imprimir tabla
-    public void mostrarTablaCodigoIntermedio() {
-        System.out.println("\n╔══════════════════════════════════════════════════════════════════════════════════════════════════╗");
-        System.out.println("║                        TABLA DE CÓDIGO INTERMEDIO (MÁQUINA DE PILA)                              ║");
-        System.out.println("╠══════╦══════════════╦══════════════════════╦═════════════════════════════════════════════════════╣");
-        System.out.println("║ Paso ║ Instrucción  ║ Pila (Stack)         ║ Explicación                                         ║");
-        System.out.println("╠══════╬══════════════╬══════════════════════╬═════════════════════════════════════════════════════╣");
-        
-        for (PasoPila p : pasos) {
-            System.out.printf("║ %-4d ║ %-12s ║ %-20s ║ %-51s ║\n", p.paso, p.instruccion, p.estadoPila, p.explicacion);
-        }
-        
-        System.out.println("╚══════╩══════════════╩══════════════════════╩═════════════════════════════════════════════════════╝");
+    List<PasoPila> getPasos() {
+        return pasos;
     }
 }
@@ -0,0 +1,179 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+// cuadruplo (operador, arg1, arg2, resultado); arg2 es null en una copia
+class Cuadruplo {
+    String operador;
+    String arg1;
+    String arg2;
+    String resultado;
+
+    public Cuadruplo(String operador, String arg1, String arg2, String resultado) {
+        this.operador = operador;
+        this.arg1 = arg1;
+        this.arg2 = arg2;
+        this.resultado = resultado;
+    }
+
+    @Override
+    public String toString() {
+        if (arg2 == null)
+            return resultado + " = " + arg1;
+        return resultado + " = " + arg1 + " " + operador + " " + arg2;
+    }
+}
+
+// generador de codigo de tres direcciones a partir del mismo ast que GeneradorCodigoPila
+// cada operacion deja su resultado en un temporal explicito; un temporal se libera en
+// cuanto se usa como operando y el siguiente resultado toma el temporal libre mas bajo,
+// asi que una expresion ocupa tantos temporales como su profundidad y no uno por operacion
+// los temporales se llaman #t1, #t2...: el lexer nunca devuelve un ID con '#', asi que no
+// chocan con las variables del programa (igual que los de GeneradorCodigoPila)
+class GeneradorTresDirecciones {
+    private final List<Cuadruplo> cuadruplos = new ArrayList<>();
+// temporales libres (#t1 es el bit 1)
+    private final BitSet libres = new BitSet();
+    private int temporalesUsados;
+// pilas del recorrido (se reutilizan entre llamadas)
+    private final List<NodoAST> pendientes = new ArrayList<>();
+    private final List<Boolean> visitados = new ArrayList<>();
+    private int[] resultados = new int[16];
+
+// iniciar codigo para ast
+    public void generarCodigo(NodoAST raiz) {
+        cuadruplos.clear();
+        libres.clear();
+        temporalesUsados = 0;
+
+        if (raiz instanceof NodoAsignacion) {
+            NodoAsignacion asig = (NodoAsignacion) raiz;
+            int t = generar(asig.expresion);
+            String variable = asig.variable.getValor();
+// el ultimo resultado va directo a la variable en vez de copiarse desde el temporal
+            if (t > 0) {
+                cuadruplos.get(cuadruplos.size() - 1).resultado = variable;
+                liberar(t);
+            } else {
+                cuadruplos.add(new Cuadruplo("=", asig.expresion.getValor(), null, variable));
+            }
+        } else if (raiz != null) {
+            generar(raiz);
+        }
+    }
+
+// devuelve el temporal con el resultado, o 0 si el nodo es una hoja
+// post-orden con pila explicita como en GeneradorCodigoPila (no depende de la profundidad
+// del arbol); 'resultados' guarda el temporal (0 en una hoja) de cada subarbol ya generado
+    private int generar(NodoAST raiz) {
+        pendientes.clear();
+        visitados.clear();
+        int n = 0;
+        pendientes.add(raiz);
+        visitados.add(false);
+        while (!pendientes.isEmpty()) {
+            NodoAST nodo = pendientes.remove(pendientes.size() - 1);
+            boolean visitado = visitados.remove(visitados.size() - 1);
+            if (n + 1 > resultados.length) {
+                resultados = Arrays.copyOf(resultados, resultados.length * 2);
+            }
+            if (!(nodo instanceof NodoOperacion)) {
+                resultados[n++] = 0;
+                continue;
+            }
+
+            NodoOperacion op = (NodoOperacion) nodo;
+            if (!visitado) {
+// se apilan al reves: la operacion, el hijo derecho y arriba el izquierdo
+                pendientes.add(op);
+                visitados.add(true);
+                pendientes.add(op.derecho);
+                visitados.add(false);
+                pendientes.add(op.izquierdo);
+                visitados.add(false);
+                continue;
+            }
+
+            int tDer = resultados[--n];
+            int tIzq = resultados[--n];
+            String arg1 = operando(op.izquierdo, tIzq);
+            String arg2 = operando(op.derecho, tDer);
+
+// los operandos mueren aqui: el resultado puede reutilizar su temporal
+            liberar(tIzq);
+            liberar(tDer);
+            int t = nuevoTemporal();
+            cuadruplos.add(new Cuadruplo(op.operador, arg1, arg2, "#t" + t));
+            resultados[n++] = t;
+        }
+        return resultados[0];
+    }
+
+    private static String operando(NodoAST nodo, int temporal) {
+        return temporal > 0 ? "#t" + temporal : nodo.getValor();
+    }
+
+    private int nuevoTemporal() {
+        int t = libres.nextSetBit(1);
+        if (t < 0) {
+            t = ++temporalesUsados;
+        } else {
+            libres.clear(t);
+        }
+        return t;
+    }
+
+    private void liberar(int temporal) {
+        if (temporal > 0)
+            libres.set(temporal);
+    }
+
+// cuadruplos generados por la ultima llamada a generarCodigo
+    public List<Cuadruplo> getCuadruplos() {
+        return cuadruplos;
+    }
+
+// temporales distintos que se necesitaron
+    public int getTemporalesUsados() {
+        return temporalesUsados;
+    }
+
+// imprimir tabla
+    public void mostrarTablaCuadruplos() {
+        System.out.println("╔══════╦══════╦════════════╦════════════╦════════════╦══════════════════════════════╗");
+        System.out.println("║ Paso ║ Op   ║ Arg1       ║ Arg2       ║ Resultado  ║ Código                       ║");
+        System.out.println("╠══════╬══════╬════════════╬════════════╬════════════╬══════════════════════════════╣");
+        for (int i = 0; i < cuadruplos.size(); i++) {
+            Cuadruplo c = cuadruplos.get(i);
+            System.out.printf("║ %-4d ║ %-4s ║ %-10s ║ %-10s ║ %-10s ║ %-28s ║\n", i + 1, c.operador, c.arg1,
+                    c.arg2 == null ? "" : c.arg2, c.resultado, c);
+        }
+        System.out.println("╚══════╩══════╩════════════╩════════════╩════════════╩══════════════════════════════╝");
+    }
+
+    public static void main(String[] args) {
+        String[] ejemplos = args.length > 0 ? args : new String[] {
+                "x + y / (a - b / c) * z + w;",
+                "a / b + (c * d) - e * f;",
+                "area = base * altura / 2;",
+                "resultado = (10 + 20) * (30 - 5) / 10;",
+                "r = t1 * (a + b);"
+        };
+
+        GeneradorTresDirecciones tresDirecciones = new GeneradorTresDirecciones();
+        GeneradorCodigoPila pila = new GeneradorCodigoPila(false);
+        for (String ejemplo : ejemplos) {
+            NodeAsignacionOExpresion ast = new Parser(new AnalizadorLexicoCompleto().cursor(ejemplo)).parseInstruccion();
+            NodoAST raiz = ast.esAsignacion() ? ast.asignacion : ast.expresion;
+            tresDirecciones.generarCodigo(raiz);
+            pila.generarCodigo(raiz);
+
+            System.out.println("📝 ENTRADA: " + ejemplo);
+            tresDirecciones.mostrarTablaCuadruplos();
+            System.out.printf("%d cuádruplos con %d temporales (código de pila: %d instrucciones)%n%n",
+                    tresDirecciones.getCuadruplos().size(), tresDirecciones.getTemporalesUsados(),
+                    pila.getPasos().size());
+        }
+    }
+}
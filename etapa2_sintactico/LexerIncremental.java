@@ -0,0 +1,300 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+// tramo de la lista de tokens que cambio con una edicion: desde el token 'desde' se
+// quitaron 'quitados' tokens viejos y quedaron 'insertados' tokens nuevos
+class CambioTokens {
+    final int desde;
+    final int quitados;
+    final int insertados;
+
+    CambioTokens(int desde, int quitados, int insertados) {
+        this.desde = desde;
+        this.quitados = quitados;
+        this.insertados = insertados;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("tokens %d..%d -> %d nuevos", desde, desde + quitados, insertados);
+    }
+}
+
+// re-escaneo incremental para fuentes que se editan (por ejemplo, detras de un editor):
+// guarda el texto, los tokens con su posicion y cuantas veces aparece cada simbolo
+// una edicion re-escanea desde el token anterior al cambio y se detiene en cuanto un token
+// nuevo termina donde terminaba uno viejo despues de lo editado; la tabla de simbolos se
+// corrige con la diferencia (los simbolos que dejan de aparecer se eliminan)
+// ningun reconocedor mira mas de un caracter despues del token, y entre tokens el cursor
+// no guarda estado, asi que:
+//   - un token que termina antes de la edicion no cambia
+//   - pasada la edicion, si un token nuevo termina donde terminaba uno viejo, el resto
+//     de los tokens es el mismo (solo se corren las posiciones)
+// los ids de los simbolos que siguen vivos no cambian; escaneando desde cero los tokens
+// son los mismos, pero los ids pueden quedar en otro orden
+// usa la tabla del analizador: no se debe llamar a reiniciar() mientras se edita
+class LexerIncremental {
+    private final AnalizadorLexicoCompleto lexer;
+    private final TablaSimbolos tabla;
+    private final StringBuilder texto;
+
+    private final List<TokenCompleto> tokens = new ArrayList<>();
+    // posicion de cada token en el texto e id de su simbolo (0 = sin simbolo)
+    private int[] inicios = new int[64];
+    private int[] fines = new int[64];
+    private int[] ids = new int[64];
+    // apariciones de cada simbolo en la lista de tokens, por id
+    private int[] referencias = new int[64];
+
+    // tokens del tramo re-escaneado (se reutilizan entre ediciones)
+    private final List<TokenCompleto> nuevos = new ArrayList<>();
+    private int[] nuevosInicios = new int[64];
+    private int[] nuevosFines = new int[64];
+    private int[] nuevosIds = new int[64];
+
+    LexerIncremental(AnalizadorLexicoCompleto lexer, TablaSimbolos tabla, CharSequence entrada) {
+        this.lexer = lexer;
+        this.tabla = tabla;
+        this.texto = new StringBuilder(entrada.length());
+        editar(0, 0, entrada.toString());
+    }
+
+    // reemplaza 'quitados' caracteres desde 'desplazamiento' por 'insertado'
+    public CambioTokens editar(int desplazamiento, int quitados, String insertado) {
+        if (desplazamiento < 0 || quitados < 0 || desplazamiento + quitados > texto.length())
+            throw new IndexOutOfBoundsException("edicion fuera del texto: " + desplazamiento + "+" + quitados);
+        texto.replace(desplazamiento, desplazamiento + quitados, insertado);
+        int delta = insertado.length() - quitados;
+        // desde aqui (posiciones nuevas) el texto es igual al de antes
+        int finEdicion = desplazamiento + insertado.length();
+        int n = tokens.size();
+
+        // primer token que puede cambiar: el primero que termina en la edicion o despues
+        // (lo editado puede ser su ultimo caracter o el que lo corto)
+        int desde = primerTokenQueTerminaDesde(desplazamiento);
+        int posicion = desde == 0 ? 0 : fines[desde - 1];
+
+        nuevos.clear();
+        int m = 0;
+        int hasta = n;
+        int viejo = desde;
+        CursorTokens cursor = lexer.cursor(texto, posicion, texto.length());
+        while (cursor.siguiente()) {
+            agregarNuevo(m++, cursor);
+            int fin = cursor.fin();
+            if (fin < finEdicion)
+                continue;
+            while (viejo < n && fines[viejo] + delta < fin) {
+                viejo++;
+            }
+            if (viejo < n && fines[viejo] + delta == fin) {
+                hasta = viejo + 1;
+                break;
+            }
+        }
+
+        // los tokens viejos del tramo dejan de contar; los simbolos nuevos ya se contaron
+        List<SimboloCompleto> sinUso = new ArrayList<>();
+        for (int k = desde; k < hasta; k++) {
+            int id = ids[k];
+            if (id != 0 && --referencias[id] == 0) {
+                sinUso.add(tabla.obtener(id));
+            }
+        }
+
+        reemplazar(desde, hasta, m, delta);
+
+        for (SimboloCompleto s : sinUso) {
+            if (s != null && referencias[s.id] == 0) {
+                tabla.eliminar(s);
+            }
+        }
+        return new CambioTokens(desde, hasta - desde, m);
+    }
+
+    // busqueda binaria sobre los fines (crecientes)
+    private int primerTokenQueTerminaDesde(int posicion) {
+        int bajo = 0;
+        int alto = tokens.size();
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (fines[medio] < posicion) {
+                bajo = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return bajo;
+    }
+
+    private void agregarNuevo(int k, CursorTokens cursor) {
+        if (k == nuevosInicios.length) {
+            nuevosInicios = Arrays.copyOf(nuevosInicios, k * 2);
+            nuevosFines = Arrays.copyOf(nuevosFines, k * 2);
+            nuevosIds = Arrays.copyOf(nuevosIds, k * 2);
+        }
+        nuevos.add(cursor.token());
+        nuevosInicios[k] = cursor.inicio();
+        nuevosFines[k] = cursor.fin();
+        SimboloCompleto s = cursor.simbolo();
+        nuevosIds[k] = s == null ? 0 : s.id;
+        if (s != null) {
+            if (s.id >= referencias.length) {
+                referencias = Arrays.copyOf(referencias, Math.max(s.id + 1, referencias.length * 2));
+            }
+            referencias[s.id]++;
+        }
+    }
+
+    // cambia los tokens [desde, hasta) por los m nuevos y corre la cola 'delta' posiciones
+    private void reemplazar(int desde, int hasta, int m, int delta) {
+        int n = tokens.size();
+        int tamano = n - (hasta - desde) + m;
+        if (tamano > inicios.length) {
+            int capacidad = Math.max(tamano, inicios.length * 2);
+            inicios = Arrays.copyOf(inicios, capacidad);
+            fines = Arrays.copyOf(fines, capacidad);
+            ids = Arrays.copyOf(ids, capacidad);
+        }
+        System.arraycopy(inicios, hasta, inicios, desde + m, n - hasta);
+        System.arraycopy(fines, hasta, fines, desde + m, n - hasta);
+        System.arraycopy(ids, hasta, ids, desde + m, n - hasta);
+        if (delta != 0) {
+            for (int k = desde + m; k < tamano; k++) {
+                inicios[k] += delta;
+                fines[k] += delta;
+            }
+        }
+        System.arraycopy(nuevosInicios, 0, inicios, desde, m);
+        System.arraycopy(nuevosFines, 0, fines, desde, m);
+        System.arraycopy(nuevosIds, 0, ids, desde, m);
+
+        int comunes = Math.min(m, hasta - desde);
+        for (int k = 0; k < comunes; k++) {
+            tokens.set(desde + k, nuevos.get(k));
+        }
+        if (hasta - desde > comunes) {
+            tokens.subList(desde + comunes, hasta).clear();
+        } else if (m > comunes) {
+            tokens.addAll(desde + comunes, nuevos.subList(comunes, m));
+        }
+    }
+
+    public List<TokenCompleto> getTokens() {
+        return Collections.unmodifiableList(tokens);
+    }
+
+    public int inicio(int token) {
+        return inicios[token];
+    }
+
+    public int fin(int token) {
+        return fines[token];
+    }
+
+    // texto actual; es el mismo objeto que se edita, no se debe guardar
+    public CharSequence texto() {
+        return texto;
+    }
+
+    // ediciones al azar contra un escaneo completo del texto resultante, y tiempo de
+    // una edicion pequena en un texto grande contra volver a escanear todo
+    public static void main(String[] args) {
+        String[] piezas = { "a", "b", "x1", "if", "while", "12", "3.5", "4.", "\"hola\"", "\"", "+", "-", "*",
+                "/", "=", "==", "<", "<=", "!", "(", ")", ";", "{", "}", " ", " ", "\n" };
+        Random azar = new Random(7);
+        PrintStream errores = System.err;
+        System.setErr(new PrintStream(OutputStream.nullOutputStream()));
+
+        int ediciones = 0;
+        int diferencias = 0;
+        for (int prueba = 0; prueba < 1_000; prueba++) {
+            AnalizadorLexicoCompleto lexer = new AnalizadorLexicoCompleto();
+            LexerIncremental incremental = lexer.escanearIncremental(textoAlAzar(azar, piezas, 40));
+            for (int e = 0; e < 20; e++) {
+                int largo = incremental.texto().length();
+                int desde = azar.nextInt(largo + 1);
+                int quitados = azar.nextInt(Math.min(6, largo - desde) + 1);
+                incremental.editar(desde, quitados, textoAlAzar(azar, piezas, azar.nextInt(3)));
+                ediciones++;
+                if (!coincideConEscaneoCompleto(incremental, lexer) && diferencias++ < 5) {
+                    errores.println("DIFERENCIA: " + incremental.texto());
+                }
+            }
+        }
+        System.setErr(errores);
+        System.out.printf("%d ediciones al azar, %d diferencias con el escaneo completo%n", ediciones, diferencias);
+
+        String grande = textoAlAzar(new Random(1), new String[] { "total", " = ", "total", " + ", "x", " 12 ",
+                " * ", "(", "y", " - ", " 3.5 ", ")", ";\n" }, 400_000);
+        AnalizadorLexicoCompleto completo = new AnalizadorLexicoCompleto();
+        LexerIncremental incremental = new AnalizadorLexicoCompleto().escanearIncremental(grande);
+        int repeticiones = 2_000;
+        for (int vuelta = 0; vuelta < 2; vuelta++) {
+            long inicio = System.nanoTime();
+            for (int i = 0; i < repeticiones / 20; i++) {
+                completo.reiniciar();
+                completo.escanear(grande);
+            }
+            long porEscaneo = (System.nanoTime() - inicio) / (repeticiones / 20);
+
+            inicio = System.nanoTime();
+            for (int i = 0; i < repeticiones; i++) {
+                // se escribe una letra al final de alguna palabra y se vuelve a borrar
+                int posicion = Math.max(grande.indexOf(' ', (int) ((long) i * 7919 % grande.length())), 0);
+                incremental.editar(posicion, 0, "z");
+                incremental.editar(posicion, 1, "");
+            }
+            long porEdicion = (System.nanoTime() - inicio) / (2L * repeticiones);
+
+            if (vuelta > 0) {
+                System.out.printf("%d caracteres, %d tokens: escaneo completo %.2f ms, edición incremental %.3f ms%n",
+                        grande.length(), incremental.getTokens().size(), porEscaneo / 1e6, porEdicion / 1e6);
+            }
+        }
+    }
+
+    private static String textoAlAzar(Random azar, String[] piezas, int cantidad) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < cantidad; i++) {
+            sb.append(piezas[azar.nextInt(piezas.length)]);
+        }
+        return sb.toString();
+    }
+
+    // mismos tokens y posiciones, y los mismos simbolos vivos en la tabla
+    private static boolean coincideConEscaneoCompleto(LexerIncremental incremental, AnalizadorLexicoCompleto lexer) {
+        AnalizadorLexicoCompleto otro = new AnalizadorLexicoCompleto();
+        CursorTokens cursor = otro.cursor(incremental.texto().toString());
+        List<TokenCompleto> tokens = incremental.getTokens();
+        int k = 0;
+        while (cursor.siguiente()) {
+            if (k == tokens.size())
+                return false;
+            TokenCompleto t = tokens.get(k);
+            if (t.codigo != cursor.tipo() || !t.lexema.equals(cursor.token().lexema)
+                    || incremental.inicio(k) != cursor.inicio() || incremental.fin(k) != cursor.fin())
+                return false;
+            k++;
+        }
+        if (k != tokens.size())
+            return false;
+
+        Set<String> esperados = new HashSet<>();
+        for (SimboloCompleto s : otro.tablaSimbolos()) {
+            esperados.add(s.codigo + " " + s.nombre);
+        }
+        Set<String> actuales = new HashSet<>();
+        for (SimboloCompleto s : lexer.tablaSimbolos()) {
+            actuales.add(s.codigo + " " + s.nombre);
+        }
+        return esperados.equals(actuales);
+    }
+}
@@ -0,0 +1,237 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// codigo de pila ya ensamblado: pares (opcode, operando) en un int[], constantes aparte
+// y una ranura por variable
+class ProgramaPila {
+    static final int CONST = 0; // operando: indice en constantes
+    static final int LOAD = 1;  // operando: ranura de variable
+    static final int STORE = 2; // operando: ranura de variable (saca de la pila)
+    static final int ADD = 3;
+    static final int SUB = 4;
+    static final int MUL = 5;
+    static final int DIV = 6;
+    static final int DUP = 7;
+
+    final int[] codigo;
+    final double[] constantes;
+    final String[] variables;
+    final int pilaMaxima;
+    private final Map<String, Integer> ranuras;
+
+    ProgramaPila(int[] codigo, double[] constantes, String[] variables, int pilaMaxima) {
+        this.codigo = codigo;
+        this.constantes = constantes;
+        this.variables = variables;
+        this.pilaMaxima = pilaMaxima;
+        this.ranuras = new HashMap<>();
+        for (int i = 0; i < variables.length; i++) {
+            ranuras.put(variables[i], i);
+        }
+    }
+
+    // ranura de la variable o -1 si el programa no la usa
+    int ranura(String variable) {
+        Integer r = ranuras.get(variable);
+        return r == null ? -1 : r;
+    }
+
+    int numVariables() {
+        return variables.length;
+    }
+
+    // arreglo de variables listo para ejecutar (todas en 0)
+    double[] nuevasVariables() {
+        return new double[variables.length];
+    }
+}
+
+// traduce la salida de GeneradorCodigoPila (PUSH/ADD/SUB/MUL/DIV/POP, y DUP/STORE/LOAD
+// de los temporales de subexpresiones comunes) a un ProgramaPila; los temporales ocupan
+// ranuras de variable como cualquier otra
+class EnsambladorPila {
+    private final List<Integer> codigo = new ArrayList<>();
+    private final List<Double> constantes = new ArrayList<>();
+    private final Map<Double, Integer> indiceConstantes = new HashMap<>();
+    private final List<String> variables = new ArrayList<>();
+    private final Map<String, Integer> indiceVariables = new HashMap<>();
+    private int profundidad;
+    private int pilaMaxima;
+
+    static ProgramaPila ensamblar(List<PasoPila> pasos) {
+        EnsambladorPila e = new EnsambladorPila();
+        for (PasoPila p : pasos) {
+            e.instruccion(p.instruccion);
+        }
+        return e.terminar();
+    }
+
+    private void instruccion(String texto) {
+        int espacio = texto.indexOf(' ');
+        String nombre = espacio < 0 ? texto : texto.substring(0, espacio);
+        String operando = espacio < 0 ? null : texto.substring(espacio + 1);
+
+        switch (nombre) {
+            case "PUSH":
+                if (esNumero(operando)) {
+                    emitir(ProgramaPila.CONST, constante(Double.parseDouble(operando)), 1);
+                } else {
+                    emitir(ProgramaPila.LOAD, variable(operando), 1);
+                }
+                break;
+            case "POP":
+            case "STORE":
+                emitir(ProgramaPila.STORE, variable(operando), -1);
+                break;
+            case "LOAD":
+                emitir(ProgramaPila.LOAD, variable(operando), 1);
+                break;
+            case "DUP":
+                emitir(ProgramaPila.DUP, 0, 1);
+                break;
+            case "ADD":
+                emitir(ProgramaPila.ADD, 0, -1);
+                break;
+            case "SUB":
+                emitir(ProgramaPila.SUB, 0, -1);
+                break;
+            case "MUL":
+                emitir(ProgramaPila.MUL, 0, -1);
+                break;
+            case "DIV":
+                emitir(ProgramaPila.DIV, 0, -1);
+                break;
+            default:
+                throw new IllegalArgumentException("Instrucción de pila desconocida: " + texto);
+        }
+    }
+
+// el optimizador puede dejar constantes negativas (PUSH -5)
+// solo digitos ASCII: Double.parseDouble no acepta los de otros alfabetos
+    private static boolean esNumero(String operando) {
+        char c = operando.charAt(0);
+        if (c == '-' && operando.length() > 1)
+            c = operando.charAt(1);
+        return c >= '0' && c <= '9';
+    }
+
+    private void emitir(int opcode, int operando, int efectoPila) {
+        codigo.add(opcode);
+        codigo.add(operando);
+        profundidad += efectoPila;
+        if (profundidad < 0) {
+            throw new IllegalArgumentException("Código de pila mal formado: la pila queda vacía");
+        }
+        pilaMaxima = Math.max(pilaMaxima, profundidad);
+    }
+
+    private int constante(double valor) {
+        return indiceConstantes.computeIfAbsent(valor, v -> {
+            constantes.add(v);
+            return constantes.size() - 1;
+        });
+    }
+
+    private int variable(String nombre) {
+        return indiceVariables.computeIfAbsent(nombre, v -> {
+            variables.add(v);
+            return variables.size() - 1;
+        });
+    }
+
+    private ProgramaPila terminar() {
+        int[] c = new int[codigo.size()];
+        for (int i = 0; i < c.length; i++) {
+            c[i] = codigo.get(i);
+        }
+        double[] k = new double[constantes.size()];
+        for (int i = 0; i < k.length; i++) {
+            k[i] = constantes.get(i);
+        }
+        return new ProgramaPila(c, k, variables.toArray(new String[0]), pilaMaxima);
+    }
+}
+
+// interprete del codigo de pila sobre un double[]
+// la pila se reutiliza entre ejecuciones: una maquina por hilo
+class MaquinaPila {
+    private double[] pila = new double[16];
+
+    // ejecuta el programa con los valores de 'variables' (indexados por ranura)
+    // devuelve el tope de la pila, o el ultimo valor asignado si la pila queda vacia
+    double ejecutar(ProgramaPila programa, double[] variables) {
+        if (pila.length < programa.pilaMaxima) {
+            pila = new double[programa.pilaMaxima];
+        }
+        final double[] pila = this.pila;
+        final int[] codigo = programa.codigo;
+        final double[] constantes = programa.constantes;
+        int tope = 0;
+        double ultimo = Double.NaN;
+
+        for (int pc = 0; pc < codigo.length; pc += 2) {
+            switch (codigo[pc]) {
+                case ProgramaPila.CONST:
+                    pila[tope++] = constantes[codigo[pc + 1]];
+                    break;
+                case ProgramaPila.LOAD:
+                    pila[tope++] = variables[codigo[pc + 1]];
+                    break;
+                case ProgramaPila.STORE:
+                    ultimo = pila[--tope];
+                    variables[codigo[pc + 1]] = ultimo;
+                    break;
+                case ProgramaPila.DUP:
+                    pila[tope] = pila[tope - 1];
+                    tope++;
+                    break;
+                case ProgramaPila.ADD:
+                    tope--;
+                    pila[tope - 1] += pila[tope];
+                    break;
+                case ProgramaPila.SUB:
+                    tope--;
+                    pila[tope - 1] -= pila[tope];
+                    break;
+                case ProgramaPila.MUL:
+                    tope--;
+                    pila[tope - 1] *= pila[tope];
+                    break;
+                case ProgramaPila.DIV:
+                    tope--;
+                    pila[tope - 1] /= pila[tope];
+                    break;
+                default:
+                    throw new IllegalStateException("Opcode inválido: " + codigo[pc]);
+            }
+        }
+        return tope > 0 ? pila[tope - 1] : ultimo;
+    }
+
+    public static void main(String[] args) {
+        String formula = args.length > 0 ? args[0] : "area = base * altura / 2;";
+        ProgramaPila programa = EnsambladorPila.ensamblar(AnalizadorSintactico.procesarExpresion(formula, false));
+
+        System.out.println("Fórmula: " + formula);
+        System.out.println("Variables: " + String.join(", ", programa.variables));
+
+        // se evalua cambiando el valor de las variables en cada vuelta
+        MaquinaPila maquina = new MaquinaPila();
+        double[] variables = programa.nuevasVariables();
+        int evaluaciones = 10_000_000;
+        double suma = 0;
+        long inicio = System.nanoTime();
+        for (int i = 0; i < evaluaciones; i++) {
+            for (int v = 0; v < variables.length; v++) {
+                variables[v] = i + v;
+            }
+            suma += maquina.ejecutar(programa, variables);
+        }
+        long nanos = System.nanoTime() - inicio;
+
+        System.out.printf("%d evaluaciones en %.3f s (%.0f evaluaciones/s), suma = %.1f%n",
+                evaluaciones, nanos / 1e9, evaluaciones * 1e9 / nanos, suma);
+    }
+}
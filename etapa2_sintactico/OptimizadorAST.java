@@ -0,0 +1,187 @@
+import java.util.ArrayList;
+import java.util.List;
+
+// optimizacion del ast antes de generar codigo:
+//   - plegado de constantes: una operacion entre dos num se reemplaza por su resultado
+//   - identidades: x*1, 1*x, x/1, x+0, 0+x, x-0 -> x
+//   - x*0 y 0*x -> 0 solo si x no tiene divisiones (las variables se suponen finitas;
+//     una division puede dar infinito o NaN y entonces el producto no es 0)
+// no se pliega lo que daria infinito o NaN (division entre cero): se deja para la ejecucion
+// el arbol original no se modifica; los subarboles sin cambios se comparten
+class OptimizadorAST {
+    private int instruccionesEliminadas;
+
+    public NodeAsignacionOExpresion optimizar(NodeAsignacionOExpresion ast) {
+        if (ast.esAsignacion()) {
+            return new NodeAsignacionOExpresion((NodoAsignacion) optimizar(ast.asignacion));
+        }
+        return new NodeAsignacionOExpresion(optimizar(ast.expresion));
+    }
+
+    public NodoAST optimizar(NodoAST raiz) {
+        NodoAST optimizado = plegar(raiz);
+// cada nodo del arbol genera exactamente una instruccion de pila
+        instruccionesEliminadas += contarNodos(raiz) - contarNodos(optimizado);
+        return optimizado;
+    }
+
+// instrucciones de pila ahorradas desde que se creo el optimizador
+    public int getInstruccionesEliminadas() {
+        return instruccionesEliminadas;
+    }
+
+    private NodoAST plegar(NodoAST nodo) {
+        if (nodo instanceof NodoAsignacion) {
+            NodoAsignacion asig = (NodoAsignacion) nodo;
+            NodoAST expresion = plegarExpresion(asig.expresion);
+            return expresion == asig.expresion ? asig : new NodoAsignacion(asig.variable, expresion);
+        }
+        return plegarExpresion(nodo);
+    }
+
+// post-orden con pilas explicitas; junto a cada subarbol ya plegado se guarda si
+// contiene una division (para la regla de x*0)
+    private NodoAST plegarExpresion(NodoAST raiz) {
+        List<NodoAST> pendientes = new ArrayList<>();
+        List<Boolean> visitados = new ArrayList<>();
+        List<NodoAST> plegados = new ArrayList<>();
+        List<Boolean> divisiones = new ArrayList<>();
+        pendientes.add(raiz);
+        visitados.add(false);
+
+        while (!pendientes.isEmpty()) {
+            NodoAST nodo = pendientes.remove(pendientes.size() - 1);
+            boolean visitado = visitados.remove(visitados.size() - 1);
+            if (!(nodo instanceof NodoOperacion)) {
+                plegados.add(nodo);
+                divisiones.add(false);
+                continue;
+            }
+
+            NodoOperacion op = (NodoOperacion) nodo;
+            if (!visitado) {
+                pendientes.add(op);
+                visitados.add(true);
+                pendientes.add(op.derecho);
+                visitados.add(false);
+                pendientes.add(op.izquierdo);
+                visitados.add(false);
+                continue;
+            }
+
+            NodoAST der = plegados.remove(plegados.size() - 1);
+            boolean divDer = divisiones.remove(divisiones.size() - 1);
+            NodoAST izq = plegados.remove(plegados.size() - 1);
+            boolean divIzq = divisiones.remove(divisiones.size() - 1);
+            NodoAST resultado = simplificar(op, izq, divIzq, der, divDer);
+
+            plegados.add(resultado);
+            if (resultado == izq) {
+                divisiones.add(divIzq);
+            } else if (resultado == der) {
+                divisiones.add(divDer);
+            } else {
+                divisiones.add(resultado instanceof NodoOperacion
+                        && (divIzq || divDer || op.codigo == TipoToken.OPERA_DIVID));
+            }
+        }
+        return plegados.get(0);
+    }
+
+// op con sus hijos ya plegados
+    private static NodoAST simplificar(NodoOperacion op, NodoAST izq, boolean divIzq, NodoAST der, boolean divDer) {
+// constante op constante
+        if (esNumero(izq) && esNumero(der)) {
+            double resultado = aplicar(op.codigo, valor(izq), valor(der));
+            if (Double.isFinite(resultado)) {
+                return new NodoHoja("num", formatear(resultado));
+            }
+        }
+
+// identidades algebraicas
+        switch (op.codigo) {
+            case TipoToken.OPERA_SUMA:
+                if (esConstante(der, 0))
+                    return izq;
+                if (esConstante(izq, 0))
+                    return der;
+                break;
+            case TipoToken.OPERA_RESTA:
+                if (esConstante(der, 0))
+                    return izq;
+                break;
+            case TipoToken.OPERA_MULT:
+                if (esConstante(der, 1))
+                    return izq;
+                if (esConstante(izq, 1))
+                    return der;
+                if (esConstante(der, 0) && !divIzq)
+                    return der;
+                if (esConstante(izq, 0) && !divDer)
+                    return izq;
+                break;
+            case TipoToken.OPERA_DIVID:
+                if (esConstante(der, 1))
+                    return izq;
+                break;
+        }
+
+        if (izq == op.izquierdo && der == op.derecho)
+            return op;
+        return new NodoOperacion(op.tipoNodo, op.codigo, op.operador, izq, der);
+    }
+
+    private static double aplicar(int codigo, double a, double b) {
+        switch (codigo) {
+            case TipoToken.OPERA_SUMA:
+                return a + b;
+            case TipoToken.OPERA_RESTA:
+                return a - b;
+            case TipoToken.OPERA_MULT:
+                return a * b;
+            case TipoToken.OPERA_DIVID:
+                return a / b;
+            default:
+                return Double.NaN;
+        }
+    }
+
+    private static boolean esNumero(NodoAST nodo) {
+        return nodo instanceof NodoHoja && ((NodoHoja) nodo).tipo.equals("num");
+    }
+
+    private static double valor(NodoAST nodo) {
+        return Double.parseDouble(((NodoHoja) nodo).lexema);
+    }
+
+    private static boolean esConstante(NodoAST nodo, double constante) {
+        return esNumero(nodo) && valor(nodo) == constante;
+    }
+
+// enteros sin ".0" para que el codigo se vea igual que si se hubiera escrito a mano
+    static String formatear(double valor) {
+        if (valor == Math.rint(valor) && Math.abs(valor) < 1e15) {
+            return Long.toString((long) valor);
+        }
+        return Double.toString(valor);
+    }
+
+    private static int contarNodos(NodoAST raiz) {
+        int total = 0;
+        List<NodoAST> pendientes = new ArrayList<>();
+        pendientes.add(raiz);
+        while (!pendientes.isEmpty()) {
+            NodoAST nodo = pendientes.remove(pendientes.size() - 1);
+            if (nodo == null)
+                continue;
+            total++;
+            if (nodo instanceof NodoAsignacion) {
+                pendientes.add(((NodoAsignacion) nodo).expresion);
+            } else if (nodo instanceof NodoOperacion) {
+                pendientes.add(((NodoOperacion) nodo).izquierdo);
+                pendientes.add(((NodoOperacion) nodo).derecho);
+            }
+        }
+        return total;
+    }
+}
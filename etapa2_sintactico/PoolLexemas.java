@@ -0,0 +1,138 @@
+// pool de lexemas internados: cada texto distinto existe una sola vez como String
+// se consulta directo sobre un rango de la entrada, asi que un texto que ya esta en el
+// pool no crea ningun String; como lexer, tabla de simbolos y parser reciben el mismo
+// objeto para el mismo texto, mas adelante basta comparar con ==
+// mismo esquema que TablaSimbolos: direccionamiento abierto, sondeo lineal, carga 0.5
+// la tabla de simbolos retiene el nombre de cada simbolo y lo libera al eliminarlo o
+// truncar; los textos sin referencias (nombres liberados, operadores) se quedan hasta que
+// son mas de la mitad del pool y mas de MINIMO_LIBRES, y entonces se barren todos juntos
+// (un texto que vuelve a aparecer antes del barrido conserva su String)
+// no es seguro entre hilos: uno por analizador (EscanerParalelo usa uno por trozo)
+class PoolLexemas {
+    private static final int CAPACIDAD_INICIAL = 256;
+    private static final int MINIMO_LIBRES = 1024;
+
+    private String[] textos = new String[CAPACIDAD_INICIAL];
+    // hash de cada texto (String.hashCode), para descartar sin comparar caracteres
+    private int[] hashes = new int[CAPACIDAD_INICIAL];
+    // simbolos que usan cada texto
+    private int[] referencias = new int[CAPACIDAD_INICIAL];
+    private int mascara = CAPACIDAD_INICIAL - 1;
+    private int tamano;
+    // textos con 0 referencias
+    private int libres;
+
+    // el String del pool para el texto del rango; solo se crea si no estaba
+    public String interno(CharSequence fuente, int inicio, int fin) {
+        int largo = fin - inicio;
+        int h = TablaSimbolos.hashRango(fuente, inicio, fin);
+        int ranura = TablaSimbolos.mezclar(h) & mascara;
+        String t;
+        while ((t = textos[ranura]) != null) {
+            if (hashes[ranura] == h && t.length() == largo && TablaSimbolos.igualRango(t, fuente, inicio))
+                return t;
+            ranura = (ranura + 1) & mascara;
+        }
+        return agregar(ranura, h, fuente.subSequence(inicio, fin).toString());
+    }
+
+    public String interno(String texto) {
+        int h = texto.hashCode();
+        int ranura = TablaSimbolos.mezclar(h) & mascara;
+        String t;
+        while ((t = textos[ranura]) != null) {
+            if (t == texto || (hashes[ranura] == h && t.equals(texto)))
+                return t;
+            ranura = (ranura + 1) & mascara;
+        }
+        return agregar(ranura, h, texto);
+    }
+
+    // interna el texto y le suma una referencia (nombre de un simbolo nuevo)
+    public String retener(String texto) {
+        String t = interno(texto);
+        int ranura = ranura(t);
+        if (referencias[ranura]++ == 0) {
+            libres--;
+        }
+        return t;
+    }
+
+    // quita una referencia retenida; puede disparar el barrido de los textos libres
+    public void liberar(String texto) {
+        int ranura = ranura(texto);
+        if (ranura < 0 || referencias[ranura] == 0)
+            return;
+        if (--referencias[ranura] == 0) {
+            libres++;
+            if (libres > MINIMO_LIBRES && libres * 2 > tamano) {
+                barrer();
+            }
+        }
+    }
+
+    // textos en el pool, con y sin referencias
+    public int tamano() {
+        return tamano;
+    }
+
+    private int ranura(String texto) {
+        int ranura = TablaSimbolos.mezclar(texto.hashCode()) & mascara;
+        String t;
+        while ((t = textos[ranura]) != null) {
+            if (t == texto || t.equals(texto))
+                return ranura;
+            ranura = (ranura + 1) & mascara;
+        }
+        return -1;
+    }
+
+    private String agregar(int ranura, int h, String texto) {
+        textos[ranura] = texto;
+        hashes[ranura] = h;
+        referencias[ranura] = 0;
+        tamano++;
+        libres++;
+        if (tamano * 2 > textos.length) {
+            reconstruir(textos.length * 2, false);
+        }
+        return texto;
+    }
+
+    // deja solo los textos con referencias, en una capacidad a la medida
+    private void barrer() {
+        int capacidad = CAPACIDAD_INICIAL;
+        while (capacidad < (tamano - libres) * 4) {
+            capacidad *= 2;
+        }
+        reconstruir(capacidad, true);
+    }
+
+    private void reconstruir(int capacidad, boolean soloRetenidos) {
+        String[] nuevosTextos = new String[capacidad];
+        int[] nuevosHashes = new int[capacidad];
+        int[] nuevasReferencias = new int[capacidad];
+        int nuevaMascara = capacidad - 1;
+        int nuevoTamano = 0;
+        for (int i = 0; i < textos.length; i++) {
+            if (textos[i] == null || (soloRetenidos && referencias[i] == 0))
+                continue;
+            int ranura = TablaSimbolos.mezclar(hashes[i]) & nuevaMascara;
+            while (nuevosTextos[ranura] != null) {
+                ranura = (ranura + 1) & nuevaMascara;
+            }
+            nuevosTextos[ranura] = textos[i];
+            nuevosHashes[ranura] = hashes[i];
+            nuevasReferencias[ranura] = referencias[i];
+            nuevoTamano++;
+        }
+        textos = nuevosTextos;
+        hashes = nuevosHashes;
+        referencias = nuevasReferencias;
+        mascara = nuevaMascara;
+        if (soloRetenidos) {
+            tamano = nuevoTamano;
+            libres = 0;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// un solo objeto que atiende compilaciones de varios hilos a la vez
+// la configuracion (lexer, generador) se arma una vez y no cambia; el estado de cada
+// compilacion vive en la llamada (tabla de simbolos, pasos) o en el hilo (el parser,
+// que se reutiliza con reiniciar)
+// sin tabla compartida cada compilacion escanea con una tabla nueva (copia de las
+// palabras reservadas); con una TablaSimbolosConcurrente todas registran ahi sus simbolos
+class ServicioCompilacion {
+    private final AnalizadorLexicoCompleto lexer;
+    private final boolean tablaCompartida;
+    private final GeneradorCodigoPila generador;
+    private final ThreadLocal<Parser> parsers = ThreadLocal.withInitial(Parser::new);
+
+    public ServicioCompilacion(boolean diagnostico) {
+        lexer = new AnalizadorLexicoCompleto();
+        tablaCompartida = false;
+        generador = new GeneradorCodigoPila(diagnostico);
+    }
+
+    public ServicioCompilacion(boolean diagnostico, TablaSimbolosConcurrente tabla) {
+        lexer = new AnalizadorLexicoCompleto(MotorLexico.MANUAL, tabla);
+        tablaCompartida = true;
+        generador = new GeneradorCodigoPila(diagnostico);
+    }
+
+    public NodeAsignacionOExpresion parsear(String entrada) {
+        CursorTokens cursor = tablaCompartida ? lexer.cursor(entrada)
+                : lexer.cursor(entrada, AnalizadorLexicoCompleto.nuevaTabla());
+        Parser parser = parsers.get();
+        parser.reiniciar(cursor);
+        try {
+            return parser.parseInstruccion();
+        } finally {
+// el parser del hilo no se queda con la entrada
+            parser.reiniciar((CursorTokens) null);
+        }
+    }
+
+    public List<PasoPila> compilar(String entrada) {
+        return generador.generar(parsear(entrada).getRaiz());
+    }
+
+// tabla compartida (con tabla por compilacion es una tabla que no se usa)
+    public TablaSimbolos tablaSimbolos() {
+        return lexer.tablaSimbolos();
+    }
+
+// varios hilos compilando con lexer, parser y generador nuevos en cada peticion contra
+// un solo servicio, con tabla por compilacion y con tabla concurrente compartida
+    public static void main(String[] args) throws Exception {
+        String[] formulas = new String[4096];
+        for (int i = 0; i < formulas.length; i++) {
+            formulas[i] = "r" + i + " = (v" + (i * 7 % 3000) + " + " + i + ") * (v" + (i * 13 % 3000) + " - w"
+                    + (i % 500) + " / 3) + v" + (i * 31 % 3000) + ";";
+        }
+        List<List<String>> esperado = new ArrayList<>();
+        TablaSimbolos referencia = AnalizadorLexicoCompleto.nuevaTabla();
+        AnalizadorLexicoCompleto lexer = new AnalizadorLexicoCompleto();
+        for (String f : formulas) {
+            esperado.add(instrucciones(ExpresionCompilada.compilar(f, false, false).pasos));
+            lexer.escanear(f, referencia);
+        }
+
+        int hilos = Math.max(2, Runtime.getRuntime().availableProcessors());
+        int porHilo = 100_000;
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+        try {
+            for (int vuelta = 0; vuelta < 2; vuelta++) {
+                ServicioCompilacion porCompilacion = new ServicioCompilacion(false);
+                ServicioCompilacion compartido = new ServicioCompilacion(false, new TablaSimbolosConcurrente());
+                long nuevos = medir(ejecutor, hilos, porHilo, formulas, esperado, null);
+                long servicio = medir(ejecutor, hilos, porHilo, formulas, esperado, porCompilacion);
+                long concurrente = medir(ejecutor, hilos, porHilo, formulas, esperado, compartido);
+                if (vuelta > 0) {
+                    double total = (double) hilos * porHilo * 1e9;
+                    System.out.printf("%d hilos: nuevos por petición %.0f/s, servicio con tabla por compilación %.0f/s,"
+                            + " servicio con tabla concurrente %.0f/s%n", hilos, total / nuevos, total / servicio,
+                            total / concurrente);
+                    TablaSimbolos tabla = compartido.tablaSimbolos();
+                    System.out.printf("tabla concurrente: %d símbolos (%d esperados), %d inconsistencias%n",
+                            tabla.tamano(), referencia.tamano(), inconsistencias(tabla));
+                }
+            }
+        } finally {
+            ejecutor.shutdown();
+        }
+    }
+
+// devuelve los nanosegundos; cada resultado se compara contra la compilacion en un solo hilo
+    private static long medir(ExecutorService ejecutor, int hilos, int porHilo, String[] formulas,
+            List<List<String>> esperado, ServicioCompilacion servicio) throws Exception {
+        List<Future<Integer>> tareas = new ArrayList<>();
+        long inicio = System.nanoTime();
+        for (int h = 0; h < hilos; h++) {
+            final int semilla = h;
+            tareas.add(ejecutor.submit(() -> {
+                int diferencias = 0;
+                for (int i = 0; i < porHilo; i++) {
+                    int k = (int) ((i * 31L + semilla * 977L) % formulas.length);
+                    List<PasoPila> pasos = servicio == null ? ExpresionCompilada.compilar(formulas[k], false, false).pasos
+                            : servicio.compilar(formulas[k]);
+                    if (i % 16 == 0 && !instrucciones(pasos).equals(esperado.get(k))) {
+                        diferencias++;
+                    }
+                }
+                return diferencias;
+            }));
+        }
+        int diferencias = 0;
+        for (Future<Integer> t : tareas) {
+            diferencias += t.get();
+        }
+        long nanos = System.nanoTime() - inicio;
+        if (diferencias > 0) {
+            System.out.println("DIFERENCIAS con la compilación en un hilo: " + diferencias);
+        }
+        return nanos;
+    }
+
+// cada nombre una sola vez y cada simbolo alcanzable por nombre y por id
+    private static int inconsistencias(TablaSimbolos tabla) {
+        int errores = 0;
+        Set<String> nombres = new HashSet<>();
+        for (SimboloCompleto s : tabla) {
+            if (!nombres.add(s.nombre) || tabla.buscar(s.nombre) != s || tabla.obtener(s.id) != s)
+                errores++;
+        }
+        if (nombres.size() != tabla.tamano())
+            errores++;
+        return errores;
+    }
+
+    private static List<String> instrucciones(List<PasoPila> pasos) {
+        List<String> lista = new ArrayList<>(pasos.size());
+        for (PasoPila p : pasos) {
+            lista.add(p.instruccion);
+        }
+        return lista;
+    }
+}
@@ -0,0 +1,245 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+// una franja de la tabla concurrente: indice de direccionamiento abierto sobre los
+// simbolos de la franja y su propio pool de lexemas; la protege el candado de la franja
+class FranjaSimbolos {
+    final PoolLexemas lexemas = new PoolLexemas();
+    private SimboloCompleto[] ranuras = new SimboloCompleto[16];
+    private int mascara = 15;
+    private int tamano;
+
+    SimboloCompleto buscar(String nombre, int h) {
+        int ranura = TablaSimbolos.mezclar(h) & mascara;
+        SimboloCompleto s;
+        while ((s = ranuras[ranura]) != null) {
+            if (s.nombre.equals(nombre))
+                return s;
+            ranura = (ranura + 1) & mascara;
+        }
+        return null;
+    }
+
+    SimboloCompleto buscar(CharSequence fuente, int inicio, int fin, int h) {
+        int largo = fin - inicio;
+        int ranura = TablaSimbolos.mezclar(h) & mascara;
+        SimboloCompleto s;
+        while ((s = ranuras[ranura]) != null) {
+            if (s.nombre.length() == largo && TablaSimbolos.igualRango(s.nombre, fuente, inicio))
+                return s;
+            ranura = (ranura + 1) & mascara;
+        }
+        return null;
+    }
+
+    // el llamador ya comprobo que el nombre no esta
+    void agregar(SimboloCompleto simbolo) {
+        int ranura = TablaSimbolos.mezclar(simbolo.nombre.hashCode()) & mascara;
+        while (ranuras[ranura] != null) {
+            ranura = (ranura + 1) & mascara;
+        }
+        ranuras[ranura] = simbolo;
+        tamano++;
+        if (tamano * 2 > ranuras.length) {
+            reconstruir(ranuras.length * 2, Integer.MAX_VALUE);
+        }
+    }
+
+    // borrar es raro (LexerIncremental, truncar): se vuelve a armar el indice sin el simbolo
+    void quitar(SimboloCompleto simbolo) {
+        for (int i = 0; i < ranuras.length; i++) {
+            if (ranuras[i] == simbolo) {
+                ranuras[i] = null;
+                tamano--;
+                lexemas.liberar(simbolo.nombre);
+                reconstruir(ranuras.length, Integer.MAX_VALUE);
+                return;
+            }
+        }
+    }
+
+    // quita los simbolos con id mayor que 'ultimoId'
+    void truncar(int ultimoId) {
+        reconstruir(ranuras.length, ultimoId);
+    }
+
+    private void reconstruir(int capacidad, int ultimoId) {
+        SimboloCompleto[] anteriores = ranuras;
+        ranuras = new SimboloCompleto[capacidad];
+        mascara = capacidad - 1;
+        tamano = 0;
+        for (SimboloCompleto s : anteriores) {
+            if (s == null)
+                continue;
+            if (s.id > ultimoId) {
+                lexemas.liberar(s.nombre);
+                continue;
+            }
+            int ranura = TablaSimbolos.mezclar(s.nombre.hashCode()) & mascara;
+            while (ranuras[ranura] != null) {
+                ranura = (ranura + 1) & mascara;
+            }
+            ranuras[ranura] = s;
+            tamano++;
+        }
+    }
+}
+
+// tabla de simbolos que varios hilos pueden compartir (simbolos globales de un servicio)
+// se reparte por hash del nombre en franjas, cada una con su candado, su indice y su pool
+// de lexemas: dos hilos solo se esperan si buscan nombres de la misma franja
+// el mismo texto cae siempre en la misma franja, asi que cada nombre existe una sola vez
+// (como simbolo y como String internado) aunque dos hilos lo inserten a la vez
+// los ids siguen siendo densos y en orden de insercion global; su reparto y el arreglo
+// id -> simbolo van con otro candado que solo se toma al insertar o al consultar por id
+// truncar y eliminar no deben correr a la vez que un escaneo (como reiniciar en el lexer)
+class TablaSimbolosConcurrente extends TablaSimbolos {
+    private static final int FRANJAS = 16;
+
+    private final FranjaSimbolos[] franjas = new FranjaSimbolos[FRANJAS];
+    private final Object candadoIds = new Object();
+    // porId[id]; la posicion 0 no se usa
+    private SimboloCompleto[] porId = new SimboloCompleto[64];
+    private int ultimoId;
+    private int eliminados;
+
+    public TablaSimbolosConcurrente() {
+        for (int i = 0; i < FRANJAS; i++) {
+            franjas[i] = new FranjaSimbolos();
+        }
+    }
+
+    // bits altos del hash mezclado (el indice de cada franja usa los bajos)
+    private FranjaSimbolos franja(int h) {
+        return franjas[TablaSimbolos.mezclar(h) >>> 28];
+    }
+
+    @Override
+    public int tamano() {
+        synchronized (candadoIds) {
+            return ultimoId - eliminados;
+        }
+    }
+
+    @Override
+    public int siguienteId() {
+        synchronized (candadoIds) {
+            return ultimoId + 1;
+        }
+    }
+
+    @Override
+    public SimboloCompleto buscar(String nombre) {
+        int h = nombre.hashCode();
+        FranjaSimbolos f = franja(h);
+        synchronized (f) {
+            return f.buscar(nombre, h);
+        }
+    }
+
+    @Override
+    public SimboloCompleto buscar(CharSequence fuente, int inicio, int fin) {
+        int h = hashRango(fuente, inicio, fin);
+        FranjaSimbolos f = franja(h);
+        synchronized (f) {
+            return f.buscar(fuente, inicio, fin, h);
+        }
+    }
+
+    @Override
+    public String interno(CharSequence fuente, int inicio, int fin) {
+        FranjaSimbolos f = franja(hashRango(fuente, inicio, fin));
+        synchronized (f) {
+            return f.lexemas.interno(fuente, inicio, fin);
+        }
+    }
+
+    @Override
+    public String interno(String texto) {
+        FranjaSimbolos f = franja(texto.hashCode());
+        synchronized (f) {
+            return f.lexemas.interno(texto);
+        }
+    }
+
+    @Override
+    public SimboloCompleto obtener(int id) {
+        synchronized (candadoIds) {
+            if (id < 1 || id > ultimoId)
+                return null;
+            return porId[id];
+        }
+    }
+
+    // orden de candados: franja y despues candadoIds (nunca al reves)
+    @Override
+    public SimboloCompleto insertar(String nombre, int codigo, String valor) {
+        int h = nombre.hashCode();
+        FranjaSimbolos f = franja(h);
+        synchronized (f) {
+            SimboloCompleto s = f.buscar(nombre, h);
+            if (s != null)
+                return s;
+            String internado = f.lexemas.retener(nombre);
+            synchronized (candadoIds) {
+                s = new SimboloCompleto(++ultimoId, internado, codigo, valor);
+                if (ultimoId == porId.length) {
+                    porId = Arrays.copyOf(porId, porId.length * 2);
+                }
+                porId[ultimoId] = s;
+            }
+            f.agregar(s);
+            return s;
+        }
+    }
+
+    @Override
+    public boolean eliminar(SimboloCompleto simbolo) {
+        FranjaSimbolos f = franja(simbolo.nombre.hashCode());
+        synchronized (f) {
+            synchronized (candadoIds) {
+                if (simbolo.id < 1 || simbolo.id > ultimoId || porId[simbolo.id] != simbolo)
+                    return false;
+                porId[simbolo.id] = null;
+                eliminados++;
+            }
+            f.quitar(simbolo);
+            return true;
+        }
+    }
+
+    @Override
+    public void truncar(int tamano) {
+        for (FranjaSimbolos f : franjas) {
+            synchronized (f) {
+                f.truncar(tamano);
+            }
+        }
+        synchronized (candadoIds) {
+            if (tamano >= ultimoId)
+                return;
+            Arrays.fill(porId, tamano + 1, ultimoId + 1, null);
+            ultimoId = tamano;
+            eliminados = 0;
+            for (int id = 1; id <= ultimoId; id++) {
+                if (porId[id] == null)
+                    eliminados++;
+            }
+        }
+    }
+
+    // recorre una foto de la tabla tomada al empezar
+    @Override
+    public Iterator<SimboloCompleto> iterator() {
+        List<SimboloCompleto> foto = new ArrayList<>();
+        synchronized (candadoIds) {
+            for (int id = 1; id <= ultimoId; id++) {
+                if (porId[id] != null)
+                    foto.add(porId[id]);
+            }
+        }
+        return foto.iterator();
+    }
+}
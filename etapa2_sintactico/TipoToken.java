@@ -0,0 +1,120 @@
+import java.util.HashMap;
+import java.util.Map;
+
+// codigos enteros de los tipos de token
+// el lexer, el parser y el generador comparan enteros; el nombre solo se usa para mostrar
+final class TipoToken {
+    static final int EOF = 0;
+
+    // Identificadores, números y cadenas
+    static final int ID = 1;
+    static final int NUM = 2;
+    static final int NUM_FLOAT = 3;
+    static final int CADENA = 4;
+
+    // Delimitadores
+    static final int FIN_SENTENCIA = 5;
+    static final int INI_BLOQUE = 6;
+    static final int FIN_BLOQUE = 7;
+    static final int ABRE_PARENTESIS = 8;
+    static final int CIERRA_PARENTESIS = 9;
+    static final int COMA = 10;
+
+    // Operadores matemáticos y asignación
+    static final int ASIGNA = 11;
+    static final int OPERA_SUMA = 12;
+    static final int OPERA_RESTA = 13;
+    static final int OPERA_MULT = 14;
+    static final int OPERA_DIVID = 15;
+
+    // Operadores de comparación
+    static final int OPERA_MAYOR = 16;
+    static final int OPERA_MENOR = 17;
+    static final int OPERA_IGUALDAD = 18;
+    static final int OPERA_DIFERENTE = 19;
+    static final int OPERA_MAYOR_IGUAL = 20;
+    static final int OPERA_MENOR_IGUAL = 21;
+
+    // Operadores lógicos
+    static final int OPERA_AND = 22;
+    static final int OPERA_OR = 23;
+    static final int OPERA_NOT = 24;
+
+    // Palabras reservadas
+    static final int KEY_IF = 25;
+    static final int KEY_THEN = 26;
+    static final int KEY_ELSE = 27;
+    static final int KEY_CASE = 28;
+    static final int KEY_DO = 29;
+    static final int KEY_WHILE = 30;
+    static final int KEY_SWITCH = 31;
+    static final int KEY_BREAK = 32;
+    static final int KEY_FOR = 33;
+    static final int KEY_CONTINUE = 34;
+    static final int KEY_RETURN = 35;
+    static final int KEY_CLASS = 36;
+    static final int KEY_NEW = 37;
+    static final int KEY_INTERFACE = 38;
+    static final int KEY_PACKAGE = 39;
+    static final int KEY_PUBLIC = 40;
+    static final int KEY_PRIVATE = 41;
+    static final int KEY_STATIC = 42;
+    static final int KEY_FINAL = 43;
+    static final int KEY_VOID = 44;
+    static final int KEY_MAIN = 45;
+    static final int KEY_INT = 46;
+    static final int KEY_LONG = 47;
+    static final int KEY_FLOAT = 48;
+    static final int KEY_DOUBLE = 49;
+    static final int KEY_CHAR = 50;
+    static final int KEY_BOOLEAN = 51;
+    static final int KEY_STRING = 52;
+    static final int KEY_LOCAL_DATE = 53;
+    static final int KEY_LOCAL_TIME = 54;
+    static final int KEY_BOOL = 55;
+    static final int KEY_DATE = 56;
+    static final int KEY_TRUE = 57;
+    static final int KEY_FALSE = 58;
+
+    // nombres para mostrar, indexados por codigo
+    private static final String[] NOMBRES = {
+            "EOF",
+            "ID", "NUM", "NUM_FLOAT", "CADENA",
+            "FIN_SENTENCIA", "INI_BLOQUE", "FIN_BLOQUE", "ABRE_PARENTESIS", "CIERRA_PARENTESIS", "COMA",
+            "ASIGNA", "OPERA_SUMA", "OPERA_RESTA", "OPERA_MULT", "OPERA_DIVID",
+            "OPERA_MAYOR", "OPERA_MENOR", "OPERA_IGUALDAD", "OPERA_DIFERENTE", "OPERA_MAYOR_IGUAL",
+            "OPERA_MENOR_IGUAL",
+            "OPERA_AND", "OPERA_OR", "OPERA_NOT",
+            "KEY_IF", "KEY_THEN", "KEY_ELSE", "KEY_CASE", "KEY_DO", "KEY_WHILE", "KEY_SWITCH", "KEY_BREAK",
+            "KEY_FOR", "KEY_CONTINUE", "KEY_RETURN", "KEY_CLASS", "KEY_NEW", "KEY_INTERFACE", "KEY_PACKAGE",
+            "KEY_PUBLIC", "KEY_PRIVATE", "KEY_STATIC", "KEY_FINAL", "KEY_VOID", "KEY_MAIN", "KEY_INT",
+            "KEY_LONG", "KEY_FLOAT", "KEY_DOUBLE", "KEY_CHAR", "KEY_BOOLEAN", "KEY_STRING", "KEY_LOCAL_DATE",
+            "KEY_LOCAL_TIME", "KEY_BOOL", "KEY_DATE", "KEY_TRUE", "KEY_FALSE"
+    };
+
+    private static final Map<String, Integer> CODIGOS = new HashMap<>();
+    static {
+        for (int i = 0; i < NOMBRES.length; i++) {
+            CODIGOS.put(NOMBRES[i], i);
+        }
+    }
+
+    private TipoToken() {
+    }
+
+    static int total() {
+        return NOMBRES.length;
+    }
+
+    static String nombre(int codigo) {
+        return NOMBRES[codigo];
+    }
+
+    // solo para traducir tablas de configuracion (no se usa por token)
+    static int codigo(String nombre) {
+        Integer codigo = CODIGOS.get(nombre);
+        if (codigo == null)
+            throw new IllegalArgumentException("Tipo de token desconocido: " + nombre);
+        return codigo;
+    }
+}
@@ -0,0 +1,230 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// traduccion directa de tokens a codigo de pila, sin construir el ast
+// es el mismo shunting-yard de Parser.parseE, pero en vez de armar un NodoOperacion al
+// reducir emite la instruccion, y cada operando se emite como PUSH en cuanto se lee;
+// el resultado es la misma secuencia que Parser + GeneradorCodigoPila(false)
+class TraductorDirecto {
+// dos tokens de anticipacion (id '=' decide si es asignacion)
+    private final TokensAnticipados fuente = new TokensAnticipados((CursorTokens) null);
+    private final List<TokenCompleto> operadores = new ArrayList<>();
+    private final List<PasoPila> pasos = new ArrayList<>();
+    private int contadorPasos;
+
+    public void reiniciar(CursorTokens cursor) {
+        fuente.reiniciar(cursor);
+    }
+
+    public boolean hayTokens() {
+        return obtenerToken().codigo != TipoToken.EOF;
+    }
+
+// traduce la siguiente instruccion; la lista se reutiliza en la siguiente llamada
+    public List<PasoPila> traducirInstruccion() {
+        pasos.clear();
+        operadores.clear();
+        contadorPasos = 1;
+
+        String variable = null;
+        if (obtenerToken().codigo == TipoToken.ID && fuente.ver(1).codigo == TipoToken.ASIGNA) {
+            variable = obtenerToken().lexema;
+            consumir();
+            consumir();
+        }
+
+        traducirExpresion();
+
+// ignoramos fin sentencia
+        if (obtenerToken().codigo == TipoToken.FIN_SENTENCIA) {
+            consumir();
+        }
+        if (variable != null) {
+            emitir("POP " + variable);
+        }
+        return pasos;
+    }
+
+    private void traducirExpresion() {
+        int parentesisAbiertos = 0;
+
+        while (true) {
+// se espera un operando
+            TokenCompleto token = obtenerToken();
+            if (token.codigo == TipoToken.ABRE_PARENTESIS) {
+                consumir();
+                operadores.add(token);
+                parentesisAbiertos++;
+                continue;
+            }
+            if (token.codigo == TipoToken.ID || token.codigo == TipoToken.NUM || token.codigo == TipoToken.NUM_FLOAT) {
+                consumir();
+                emitir("PUSH " + token.lexema);
+            } else {
+                System.err.println("Error sintaxis");
+                consumir();
+                emitir("PUSH error");
+            }
+
+// se espera un operador, un cierre de parentesis o el fin de la expresion
+            while (true) {
+                token = obtenerToken();
+                int precedencia = precedencia(token.codigo);
+                if (precedencia > 0) {
+                    while (!operadores.isEmpty() && precedencia(ultimoOperador().codigo) >= precedencia) {
+                        reducir();
+                    }
+                    consumir();
+                    operadores.add(token);
+                    break;
+                }
+
+                if (parentesisAbiertos == 0) {
+                    while (!operadores.isEmpty()) {
+                        reducir();
+                    }
+                    return;
+                }
+
+                while (ultimoOperador().codigo != TipoToken.ABRE_PARENTESIS) {
+                    reducir();
+                }
+                operadores.remove(operadores.size() - 1);
+                parentesisAbiertos--;
+                if (token.codigo == TipoToken.CIERRA_PARENTESIS) {
+                    consumir();
+                } else {
+                    System.err.println("Error de sintaxis: Falta paréntesis");
+                }
+            }
+        }
+    }
+
+    private static int precedencia(int codigo) {
+        switch (codigo) {
+            case TipoToken.OPERA_MULT:
+            case TipoToken.OPERA_DIVID:
+                return 2;
+            case TipoToken.OPERA_SUMA:
+            case TipoToken.OPERA_RESTA:
+                return 1;
+            default:
+                return 0;
+        }
+    }
+
+    private TokenCompleto ultimoOperador() {
+        return operadores.get(operadores.size() - 1);
+    }
+
+    private void reducir() {
+        switch (operadores.remove(operadores.size() - 1).codigo) {
+            case TipoToken.OPERA_SUMA:
+                emitir("ADD");
+                break;
+            case TipoToken.OPERA_RESTA:
+                emitir("SUB");
+                break;
+            case TipoToken.OPERA_MULT:
+                emitir("MUL");
+                break;
+            default:
+                emitir("DIV");
+        }
+    }
+
+    private void emitir(String instruccion) {
+        pasos.add(new PasoPila(contadorPasos++, instruccion, null, null));
+    }
+
+    private TokenCompleto obtenerToken() {
+        return fuente.ver(0);
+    }
+
+    private void consumir() {
+        fuente.consumir();
+    }
+
+// compara contra Parser + GeneradorCodigoPila(false) y mide ambos caminos
+    public static void main(String[] args) {
+        String[] piezas = { "a", "b", "x1", "12", "3.5", "+", "-", "*", "/", "(", ")", "=", ";" };
+        Random azar = new Random(42);
+        AnalizadorLexicoCompleto lexer = new AnalizadorLexicoCompleto();
+        TraductorDirecto traductor = new TraductorDirecto();
+        Parser parser = new Parser();
+        GeneradorCodigoPila generador = new GeneradorCodigoPila(false);
+
+// entradas al azar, validas o no; los mensajes de error se descartan
+        PrintStream errores = System.err;
+        System.setErr(new PrintStream(OutputStream.nullOutputStream()));
+        int pruebas = 100_000;
+        int diferencias = 0;
+        for (int i = 0; i < pruebas; i++) {
+            StringBuilder sb = new StringBuilder();
+            for (int k = 1 + azar.nextInt(16); k > 0; k--) {
+                sb.append(piezas[azar.nextInt(piezas.length)]).append(' ');
+            }
+            String entrada = sb.toString();
+
+            lexer.reiniciar();
+            parser.reiniciar(lexer.cursor(entrada));
+            NodeAsignacionOExpresion ast = parser.parseInstruccion();
+            generador.generarCodigo(ast.esAsignacion() ? ast.asignacion : ast.expresion);
+
+            lexer.reiniciar();
+            traductor.reiniciar(lexer.cursor(entrada));
+            List<PasoPila> directos = traductor.traducirInstruccion();
+
+            if (!mismasInstrucciones(generador.getPasos(), directos) && diferencias++ < 5) {
+                errores.println("DIFERENCIA: " + entrada);
+            }
+        }
+        System.setErr(errores);
+        System.out.printf("%d entradas al azar, %d diferencias con Parser + GeneradorCodigoPila%n", pruebas,
+                diferencias);
+
+        String[] ejemplos = {
+                "x + y / (a - b / c) * z + w;",
+                "a / b + (c * d) - e * f;",
+                "area = base * altura / 2;",
+                "resultado = (10 + 20) * (30 - 5) / 10;"
+        };
+        int repeticiones = 1_000_000;
+        for (int vuelta = 0; vuelta < 2; vuelta++) {
+            long inicio = System.nanoTime();
+            for (int i = 0; i < repeticiones; i++) {
+                lexer.reiniciar();
+                parser.reiniciar(lexer.cursor(ejemplos[i % ejemplos.length]));
+                NodeAsignacionOExpresion ast = parser.parseInstruccion();
+                generador.generarCodigo(ast.esAsignacion() ? ast.asignacion : ast.expresion);
+            }
+            long conArbol = System.nanoTime() - inicio;
+
+            inicio = System.nanoTime();
+            for (int i = 0; i < repeticiones; i++) {
+                lexer.reiniciar();
+                traductor.reiniciar(lexer.cursor(ejemplos[i % ejemplos.length]));
+                traductor.traducirInstruccion();
+            }
+            long directo = System.nanoTime() - inicio;
+
+            if (vuelta > 0) {
+                System.out.printf("con árbol: %.0f expresiones/s, directo: %.0f expresiones/s%n",
+                        repeticiones * 1e9 / conArbol, repeticiones * 1e9 / directo);
+            }
+        }
+    }
+
+    private static boolean mismasInstrucciones(List<PasoPila> a, List<PasoPila> b) {
+        if (a.size() != b.size())
+            return false;
+        for (int i = 0; i < a.size(); i++) {
+            if (!a.get(i).instruccion.equals(b.get(i).instruccion) || a.get(i).paso != b.get(i).paso)
+                return false;
+        }
+        return true;
+    }
+}